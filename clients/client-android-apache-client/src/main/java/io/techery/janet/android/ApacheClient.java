@@ -22,6 +22,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import io.techery.janet.body.ActionBody;
+import io.techery.janet.body.util.StreamUtil;
+import io.techery.janet.http.internal.ProgressInputStream;
 import io.techery.janet.http.internal.ProgressOutputStream;
 import io.techery.janet.http.model.Header;
 import io.techery.janet.http.model.Request;
@@ -50,19 +52,25 @@ public class ApacheClient implements io.techery.janet.http.HttpClient {
 
     @Override public Response execute(Request request, RequestCallback requestCallback) throws IOException {
         HttpUriRequest apacheRequest = createRequest(request, requestCallback);
-        RequestUtils.throwIfCanceled(request);
-        request.tag = apacheRequest; //mark for cancellation
+        if (request.getDeadlineNanos() != 0) {
+            //request params override client ones, so timeouts are shortened to the time left till deadline
+            HttpParams params = client.getParams();
+            HttpConnectionParams.setConnectionTimeout(apacheRequest.getParams(),
+                    RequestUtils.getTimeoutMillis(request, HttpConnectionParams.getConnectionTimeout(params)));
+            HttpConnectionParams.setSoTimeout(apacheRequest.getParams(),
+                    RequestUtils.getTimeoutMillis(request, HttpConnectionParams.getSoTimeout(params)));
+        }
+        RequestUtils.attachTag(request, apacheRequest); //mark for cancellation
         HttpResponse apacheResponse = execute(client, apacheRequest);
         RequestUtils.throwIfCanceled(request);
-        return parseResponse(request.getUrl(), apacheResponse);
+        return parseResponse(request.getUrl(), apacheResponse, requestCallback);
     }
 
     @Override public void cancel(Request request) {
-        if (request.tag != null && (request.tag instanceof HttpUriRequest)) {
-            HttpUriRequest apacheRequest = (HttpUriRequest) request.tag;
-            apacheRequest.abort();
+        Object tag = RequestUtils.markCanceled(request);
+        if (tag instanceof HttpUriRequest) {
+            ((HttpUriRequest) tag).abort();
         }
-        request.tag = RequestUtils.TAG_CANCELED;
     }
 
     protected HttpResponse execute(HttpClient client, HttpUriRequest request) throws IOException {
@@ -76,7 +84,7 @@ public class ApacheClient implements io.techery.janet.http.HttpClient {
         return new GenericHttpRequest(request);
     }
 
-    static Response parseResponse(String url, HttpResponse response) throws IOException {
+    static Response parseResponse(String url, HttpResponse response, RequestCallback requestCallback) throws IOException {
         StatusLine statusLine = response.getStatusLine();
         int status = statusLine.getStatusCode();
         String reason = statusLine.getReasonPhrase();
@@ -95,7 +103,7 @@ public class ApacheClient implements io.techery.janet.http.HttpClient {
         ActionBody body = null;
         HttpEntity entity = response.getEntity();
         if (entity != null) {
-            body = new ResponseActionBody(entity);
+            body = new ResponseActionBody(entity, requestCallback);
         }
 
         return new Response(url, status, reason, headers, body);
@@ -186,10 +194,12 @@ public class ApacheClient implements io.techery.janet.http.HttpClient {
     private static class ResponseActionBody extends ActionBody {
 
         private HttpEntity body;
+        private final DownloadProgressCallback progressCallback;
 
-        public ResponseActionBody(HttpEntity body) {
+        public ResponseActionBody(HttpEntity body, RequestCallback requestCallback) {
             super(body.getContentType() == null ? null : body.getContentType().getValue());
             this.body = body;
+            this.progressCallback = requestCallback instanceof DownloadProgressCallback ? (DownloadProgressCallback) requestCallback : null;
         }
 
         @Override public long length() {
@@ -197,11 +207,17 @@ public class ApacheClient implements io.techery.janet.http.HttpClient {
         }
 
         @Override public InputStream getContent() throws IOException {
-            return body.getContent();
+            final long length = length();
+            if (length <= 0 || progressCallback == null) return body.getContent();
+            return new ProgressInputStream(body.getContent(), new ProgressInputStream.ProgressListener() {
+                @Override public void onProgressChanged(long bytesRead) {
+                    progressCallback.onDownloadProgress((int) ((bytesRead * 100) / length));
+                }
+            }, io.techery.janet.http.HttpClient.PROGRESS_THRESHOLD);
         }
 
         @Override public void writeContentTo(OutputStream os) throws IOException {
-            body.writeTo(os);
+            StreamUtil.writeAll(getContent(), os, StreamUtil.NETWORK_CHUNK_SIZE);
         }
     }
 
@@ -0,0 +1,49 @@
+package io.techery.janet.okhttp;
+
+import com.squareup.okhttp.Call;
+import com.squareup.okhttp.Callback;
+import com.squareup.okhttp.OkHttpClient;
+
+import java.io.IOException;
+
+import io.techery.janet.http.AsyncHttpClient;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.utils.RequestUtils;
+
+/**
+ * {@linkplain OkClient} which executes requests with {@linkplain Call#enqueue(Callback)},
+ * so requests are run by {@linkplain com.squareup.okhttp.Dispatcher} instead of the calling thread.
+ * <p>
+ * Note, amount of simultaneous requests is limited by dispatcher's {@code maxRequests} and {@code maxRequestsPerHost}.
+ */
+public class AsyncOkClient extends OkClient implements AsyncHttpClient {
+
+    public AsyncOkClient() {
+        super();
+    }
+
+    public AsyncOkClient(OkHttpClient okHttpClient) {
+        super(okHttpClient);
+    }
+
+    @Override public void enqueue(Request request, final RequestCallback requestCallback, final ResponseCallback responseCallback) {
+        Call call;
+        try {
+            com.squareup.okhttp.Request okRequest = createOkRequest(request, requestCallback);
+            call = clientFor(request).newCall(okRequest);
+            RequestUtils.attachTag(request, call); //mark for cancellation
+        } catch (Throwable e) {
+            responseCallback.onFailure(e);
+            return;
+        }
+        call.enqueue(new Callback() {
+            @Override public void onFailure(com.squareup.okhttp.Request request, IOException e) {
+                responseCallback.onFailure(e);
+            }
+
+            @Override public void onResponse(com.squareup.okhttp.Response response) throws IOException {
+                responseCallback.onResponse(createResponse(response, requestCallback));
+            }
+        });
+    }
+}
@@ -10,6 +10,7 @@ import java.util.concurrent.TimeUnit;
 import io.techery.janet.body.ActionBody;
 import io.techery.janet.body.util.StreamUtil;
 import io.techery.janet.http.HttpClient;
+import io.techery.janet.http.internal.ProgressInputStream;
 import io.techery.janet.http.internal.ProgressOutputStream;
 import io.techery.janet.http.internal.ProgressOutputStream.ProgressListener;
 import io.techery.janet.http.model.Header;
@@ -32,7 +33,7 @@ public class OkClient implements HttpClient {
                 .build();
     }
 
-    private final OkHttpClient client;
+    final OkHttpClient client;
 
     public OkClient() {
         this(defaultOkHttp());
@@ -42,7 +43,33 @@ public class OkClient implements HttpClient {
         this.client = okHttpClient;
     }
 
-    @Override public Response execute(Request request, final RequestCallback requestCallback) throws IOException {
+    @Override public Response execute(Request request, RequestCallback requestCallback) throws IOException {
+        okhttp3.Request okRequest = createOkRequest(request, requestCallback);
+        Call call = clientFor(request).newCall(okRequest);
+        RequestUtils.attachTag(request, call); //mark for cancellation
+        return createResponse(call.execute(), requestCallback);
+    }
+
+    /**
+     * @return client with timeouts shortened to the time left till request deadline if it has one
+     */
+    OkHttpClient clientFor(Request request) throws IOException {
+        if (request.getDeadlineNanos() == 0) return client;
+        return client.newBuilder()
+                .connectTimeout(RequestUtils.getTimeoutMillis(request, client.connectTimeoutMillis()), TimeUnit.MILLISECONDS)
+                .readTimeout(RequestUtils.getTimeoutMillis(request, client.readTimeoutMillis()), TimeUnit.MILLISECONDS)
+                .writeTimeout(RequestUtils.getTimeoutMillis(request, client.writeTimeoutMillis()), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Override public void cancel(Request request) {
+        Object tag = RequestUtils.markCanceled(request);
+        if (tag instanceof Call) {
+            ((Call) tag).cancel();
+        }
+    }
+
+    static okhttp3.Request createOkRequest(Request request, final RequestCallback requestCallback) {
         okhttp3.Request.Builder okRequestBuilder = new okhttp3.Request.Builder();
         okRequestBuilder.url(request.getUrl());
         for (Header header : request.getHeaders()) {
@@ -57,18 +84,17 @@ public class OkClient implements HttpClient {
                 }
             });
         }
-        final okhttp3.Request okRequest = okRequestBuilder.method(request.getMethod(), requestBody).build();
-        RequestUtils.throwIfCanceled(request);
-        Call call = client.newCall(okRequest);
-        request.tag = call; //mark for cancellation
-        final okhttp3.Response okResponse = call.execute();
+        return okRequestBuilder.method(request.getMethod(), requestBody).build();
+    }
+
+    static Response createResponse(okhttp3.Response okResponse, RequestCallback requestCallback) {
         List<Header> responseHeaders = new ArrayList<Header>();
         for (String headerName : okResponse.headers().names()) {
             responseHeaders.add(new Header(headerName, okResponse.header(headerName)));
         }
         ActionBody responseBody = null;
         if (okResponse.body() != null) {
-            responseBody = new ResponseActionBody(okResponse.body());
+            responseBody = new ResponseActionBody(okResponse.body(), requestCallback);
         }
         return new Response(
                 okResponse.request().url().toString(),
@@ -76,14 +102,6 @@ public class OkClient implements HttpClient {
         );
     }
 
-    @Override public void cancel(Request request) {
-        if (request.tag != null && (request.tag instanceof Call)) {
-            Call call = (Call) request.tag;
-            call.cancel();
-        }
-        request.tag = RequestUtils.TAG_CANCELED;
-    }
-
     private static class ActionRequestBody extends okhttp3.RequestBody {
 
         private final ActionBody actionBody;
@@ -116,10 +134,12 @@ public class OkClient implements HttpClient {
     private static class ResponseActionBody extends ActionBody {
 
         private final ResponseBody body;
+        private final DownloadProgressCallback progressCallback;
 
-        public ResponseActionBody(ResponseBody body) {
+        public ResponseActionBody(ResponseBody body, RequestCallback requestCallback) {
             super(body.contentType() == null ? null : body.contentType().toString());
             this.body = body;
+            this.progressCallback = requestCallback instanceof DownloadProgressCallback ? (DownloadProgressCallback) requestCallback : null;
         }
 
         @Override public long length() {
@@ -127,11 +147,17 @@ public class OkClient implements HttpClient {
         }
 
         @Override public InputStream getContent() throws IOException {
-            return body.byteStream();
+            final long length = length();
+            if (length <= 0 || progressCallback == null) return body.byteStream();
+            return new ProgressInputStream(body.byteStream(), new ProgressInputStream.ProgressListener() {
+                @Override public void onProgressChanged(long bytesRead) {
+                    progressCallback.onDownloadProgress((int) ((bytesRead * 100) / length));
+                }
+            }, HttpClient.PROGRESS_THRESHOLD);
         }
 
         @Override public void writeContentTo(OutputStream os) throws IOException {
-            StreamUtil.writeAll(body.byteStream(), os, StreamUtil.NETWORK_CHUNK_SIZE);
+            StreamUtil.writeAll(getContent(), os, StreamUtil.NETWORK_CHUNK_SIZE);
         }
     }
 
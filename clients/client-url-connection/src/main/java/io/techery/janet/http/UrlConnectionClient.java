@@ -11,6 +11,7 @@ import java.util.Map;
 
 import io.techery.janet.body.ActionBody;
 import io.techery.janet.body.util.StreamUtil;
+import io.techery.janet.http.internal.ProgressInputStream;
 import io.techery.janet.http.internal.ProgressOutputStream;
 import io.techery.janet.http.model.Header;
 import io.techery.janet.http.model.Request;
@@ -26,16 +27,16 @@ public class UrlConnectionClient implements HttpClient {
 
     @Override public Response execute(Request request, RequestCallback requestCallback) throws IOException {
         HttpURLConnection connection = openConnection(request);
-        RequestUtils.throwIfCanceled(request);
-        request.tag = connection;
+        RequestUtils.attachTag(request, connection); //mark for cancellation
         writeRequest(connection, request, requestCallback);
         RequestUtils.throwIfCanceled(request);
-        return readResponse(connection);
+        return readResponse(connection, requestCallback);
     }
 
     @Override public void cancel(Request request) {
-        if (request.tag != null && (request.tag instanceof HttpURLConnection)) {
-            HttpURLConnection connection = (HttpURLConnection) request.tag;
+        Object tag = RequestUtils.markCanceled(request);
+        if (tag instanceof HttpURLConnection) {
+            HttpURLConnection connection = (HttpURLConnection) tag;
             connection.disconnect();
             if (connection.getDoOutput()) {
                 try {
@@ -48,13 +49,12 @@ public class UrlConnectionClient implements HttpClient {
                 } catch (IOException ignored) {}
             }
         }
-        request.tag = RequestUtils.TAG_CANCELED; //mark request as canceled
     }
 
     protected HttpURLConnection openConnection(Request request) throws IOException {
         HttpURLConnection connection = (HttpURLConnection) new URL(request.getUrl()).openConnection();
-        connection.setConnectTimeout(HttpClient.CONNECT_TIMEOUT_MILLIS);
-        connection.setReadTimeout(HttpClient.READ_TIMEOUT_MILLIS);
+        connection.setConnectTimeout(RequestUtils.getTimeoutMillis(request, HttpClient.CONNECT_TIMEOUT_MILLIS));
+        connection.setReadTimeout(RequestUtils.getTimeoutMillis(request, HttpClient.READ_TIMEOUT_MILLIS));
         return connection;
     }
 
@@ -88,7 +88,7 @@ public class UrlConnectionClient implements HttpClient {
         }
     }
 
-    Response readResponse(HttpURLConnection connection) throws IOException {
+    Response readResponse(HttpURLConnection connection, RequestCallback requestCallback) throws IOException {
         int status = connection.getResponseCode();
         String reason = connection.getResponseMessage();
         if (reason == null) reason = ""; // HttpURLConnection treats empty reason as null.
@@ -100,17 +100,19 @@ public class UrlConnectionClient implements HttpClient {
                 headers.add(new Header(name, value));
             }
         }
-        ActionBody responseBody = new ResponseActionBody(connection);
+        ActionBody responseBody = new ResponseActionBody(connection, requestCallback);
         return new Response(connection.getURL().toString(), status, reason, headers, responseBody);
     }
 
     private static class ResponseActionBody extends ActionBody {
 
         private HttpURLConnection body;
+        private final DownloadProgressCallback progressCallback;
 
-        public ResponseActionBody(HttpURLConnection body) {
+        public ResponseActionBody(HttpURLConnection body, RequestCallback requestCallback) {
             super(body.getContentType());
             this.body = body;
+            this.progressCallback = requestCallback instanceof DownloadProgressCallback ? (DownloadProgressCallback) requestCallback : null;
         }
 
         @Override public long length() {
@@ -119,11 +121,19 @@ public class UrlConnectionClient implements HttpClient {
 
         @Override public InputStream getContent() throws IOException {
             int status = body.getResponseCode();
+            InputStream stream;
             if (status >= 200 && status < 300) {
-                return body.getInputStream();
+                stream = body.getInputStream();
             } else {
-                return body.getErrorStream();
+                stream = body.getErrorStream();
             }
+            final long length = length();
+            if (stream == null || length <= 0 || progressCallback == null) return stream;
+            return new ProgressInputStream(stream, new ProgressInputStream.ProgressListener() {
+                @Override public void onProgressChanged(long bytesRead) {
+                    progressCallback.onDownloadProgress((int) ((bytesRead * 100) / length));
+                }
+            }, HttpClient.PROGRESS_THRESHOLD);
         }
 
         @Override public void writeContentTo(OutputStream os) throws IOException {
@@ -0,0 +1,10 @@
+package io.techery.janet.http.sample.benchmark;
+
+import io.techery.janet.http.annotations.HttpAction;
+import io.techery.janet.http.annotations.Status;
+
+@HttpAction("/benchmark")
+public class BenchmarkAction {
+
+    @Status int status;
+}
@@ -0,0 +1,33 @@
+package io.techery.janet.http.sample.benchmark;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+
+import io.techery.janet.http.HttpClient;
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+
+/**
+ * Blocking client which answers every request after fixed latency, like a server with constant response time
+ */
+class LatencyClient implements HttpClient {
+
+    private final long latencyMillis;
+
+    LatencyClient(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override public Response execute(Request request, RequestCallback requestCallback) throws IOException {
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+        return new Response(request.getUrl(), 200, "OK", Collections.<Header>emptyList(), null);
+    }
+
+    @Override public void cancel(Request request) {}
+}
@@ -0,0 +1,96 @@
+package io.techery.janet.http.sample.benchmark;
+
+import com.google.gson.Gson;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.techery.janet.ActionPipe;
+import io.techery.janet.HttpActionService;
+import io.techery.janet.Janet;
+import io.techery.janet.gson.GsonConverter;
+import io.techery.janet.helper.ActionStateSubscriber;
+
+/**
+ * Measures throughput of concurrent actions executed by blocking client on platform thread pool
+ * and on virtual threads, see {@linkplain HttpActionService.Builder#clientExecutor(java.util.concurrent.Executor)}.
+ * <p>
+ * Virtual threads are available on JDK 21+, so run it with such JDK, e.g.
+ * {@code java -cp <sample classpath> io.techery.janet.http.sample.benchmark.VirtualThreadBenchmark [actions] [latencyMillis]}.
+ * With 10000 actions of 50ms latency pool of 200 threads is bound to 4000 actions/s (200 threads / 50ms),
+ * while virtual threads run all of them at once. These are expected bounds, not measured results:
+ * benchmark prints actions/s of both runs for the machine it's run on.
+ */
+public class VirtualThreadBenchmark {
+
+    private static final String BASE_URL = "http://localhost";
+    private static final int PLATFORM_THREADS = 200;
+
+    public static void main(String... args) throws Exception {
+        int actions = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        long latencyMillis = args.length > 1 ? Long.parseLong(args[1]) : 50;
+
+        ExecutorService platformThreads = Executors.newFixedThreadPool(PLATFORM_THREADS);
+        run("platform threads (" + PLATFORM_THREADS + ")", platformThreads, actions, latencyMillis);
+        platformThreads.shutdown();
+
+        ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+        if (virtualThreads == null) {
+            System.out.println("virtual threads are not available, run benchmark with JDK 21+");
+            return;
+        }
+        run("virtual threads", virtualThreads, actions, latencyMillis);
+        virtualThreads.shutdown();
+    }
+
+    private static void run(String name, ExecutorService executor, int actions, long latencyMillis) throws InterruptedException {
+        HttpActionService service = new HttpActionService.Builder(BASE_URL, new LatencyClient(latencyMillis), new GsonConverter(new Gson()))
+                .clientExecutor(executor)
+                .build();
+        Janet janet = new Janet.Builder().addService(service).build();
+        ActionPipe<BenchmarkAction> pipe = janet.createPipe(BenchmarkAction.class);
+        // warm up
+        send(pipe, Math.min(actions, 1000));
+
+        long start = System.nanoTime();
+        int failed = send(pipe, actions);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println(String.format("%s: %d actions in %d ms, %.0f actions/s, %d failed",
+                name, actions, elapsedMillis, actions * 1000d / Math.max(1, elapsedMillis), failed));
+    }
+
+    /**
+     * Sends all actions at once and waits for them
+     *
+     * @return number of failed actions
+     */
+    private static int send(ActionPipe<BenchmarkAction> pipe, int actions) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(actions);
+        AtomicInteger failed = new AtomicInteger();
+        for (int i = 0; i < actions; i++) {
+            pipe.createObservable(new BenchmarkAction())
+                    .subscribe(new ActionStateSubscriber<BenchmarkAction>()
+                            .onSuccess(action -> latch.countDown())
+                            .onFail((action, throwable) -> {
+                                failed.incrementAndGet();
+                                latch.countDown();
+                            }));
+        }
+        latch.await();
+        return failed.get();
+    }
+
+    /**
+     * @return {@code Executors.newVirtualThreadPerTaskExecutor()} or {@code null} if it's not available
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -17,9 +17,12 @@ import io.techery.janet.compiler.utils.Generator;
 import io.techery.janet.compiler.utils.TypeUtils;
 import io.techery.janet.converter.Converter;
 import io.techery.janet.converter.ConverterException;
+import io.techery.janet.http.ResponseBodyConsumer;
 import io.techery.janet.http.annotations.*;
 import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.LazyResponse;
 import io.techery.janet.http.model.MultipartRequestBody;
+import io.techery.janet.http.utils.ResponseUtils;
 import io.techery.janet.internal.TypeToken;
 import org.apache.commons.lang.StringUtils;
 
@@ -29,12 +32,16 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import javax.annotation.processing.Filer;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
 
 import io.techery.janet.util.ElementResolver;
 
@@ -84,6 +91,8 @@ public class HttpHelpersGenerator extends Generator<HttpActionClass> {
 
         classBuilder.addMethod(createFillRequestMethod(actionClass));
         classBuilder.addMethod(createOnResponseMethod(actionClass));
+        classBuilder.addMethod(createIsStreamingResponseMethod(actionClass));
+        classBuilder.addMethod(createConvertLazyResponsesMethod(actionClass));
         saveClass(actionClass.getPackageName(), classBuilder.build());
     }
 
@@ -266,6 +275,7 @@ public class HttpHelpersGenerator extends Generator<HttpActionClass> {
                 .addParameter(io.techery.janet.http.model.Response.class, "response")
                 .addParameter(Converter.class, "converter")
                 .addException(ConverterException.class);
+        addResponseBuffering(actionClass, builder);
         if (actionClass.getParent() != null) {
             builder.addStatement("$L.onResponse(action, response, converter)", PARENT_HELPER_FIELD_NAME);
         }
@@ -276,39 +286,96 @@ public class HttpHelpersGenerator extends Generator<HttpActionClass> {
         return builder.build();
     }
 
+    private MethodSpec createIsStreamingResponseMethod(HttpActionClass actionClass) {
+        boolean streaming = false;
+        for (Element element : actionClass.getAllAnnotatedElements(Response.class)) {
+            if (TypeUtils.equalType(element, ResponseBodyConsumer.class) || TypeUtils.equalType(element, File.class)) {
+                streaming = true;
+                break;
+            }
+        }
+        return MethodSpec.methodBuilder("isStreamingResponse")
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(Override.class)
+                .returns(boolean.class)
+                .addStatement("return $L", streaming)
+                .build();
+    }
+
+    private MethodSpec createConvertLazyResponsesMethod(HttpActionClass actionClass) {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("convertLazyResponses")
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(Override.class)
+                .addParameter(actionClass.getTypeName(), "action")
+                .addParameter(Executor.class, "executor");
+        if (actionClass.getParent() != null) {
+            builder.addStatement("$L.convertLazyResponses(action, executor)", PARENT_HELPER_FIELD_NAME);
+        }
+        for (Element element : actionClass.getAnnotatedElements(Response.class)) {
+            if (!isLazyResponse(element)) continue;
+            String field = getFieldAddress(actionClass, element) + resolver.resolveAccessibleFieldNameToRead(actionClass.getTypeElement(), element);
+            builder.beginControlFlow("if ($L != null)", field)
+                    .addStatement("$L.convertOn(executor)", field)
+                    .endControlFlow();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Lazy responses keep body till it's converted, so it's read into memory once for all of them.
+     * It's buffered only for statuses some lazy response of action or its parents is set for,
+     * before parent helper reads the body.
+     */
+    private void addResponseBuffering(HttpActionClass actionClass, MethodSpec.Builder builder) {
+        StringBuilder condition = new StringBuilder();
+        for (Element element : actionClass.getAllAnnotatedElements(Response.class)) {
+            if (!isLazyResponse(element)) continue;
+            if (condition.length() > 0) condition.append(" || ");
+            condition.append(responseCondition(element.getAnnotation(Response.class)));
+        }
+        if (condition.length() == 0) return;
+        builder.beginControlFlow("if ($L)", condition)
+                .beginControlFlow("try")
+                .addStatement("response = $T.buffer(response)", ResponseUtils.class)
+                .nextControlFlow("catch($T e)", IOException.class)
+                .addStatement("throw $T.forDeserialization(e)", ConverterException.class)
+                .endControlFlow()
+                .endControlFlow();
+    }
+
     private void addResponses(HttpActionClass actionClass, MethodSpec.Builder builder) {
         List<Element> responseElements = actionClass.getAnnotatedElements(Response.class);
         for (Element element : responseElements) {
             Response annotation
                     = element.getAnnotation(Response.class);
-            if (annotation.value() > 0) {
-                builder.beginControlFlow("if (response.getStatus() == $L)", annotation.value());
-                addResponseStatements(actionClass, builder, element);
-                builder.endControlFlow();
-            } else if (annotation.min() > 0 || annotation.max() > 0) {
-                StringBuilder controlFlow = new StringBuilder("if(");
-                if (annotation.min() > 0) {
-                    controlFlow.append("response.getStatus() >= ").append(annotation.min());
-                    if (annotation.max() > 0) {
-                        controlFlow.append(" && ");
-                    }
-                }
+            builder.beginControlFlow("if ($L)", responseCondition(annotation));
+            addResponseStatements(actionClass, builder, element);
+            builder.endControlFlow();
+        }
+    }
+
+    /**
+     * @return condition on {@code response} status the field of annotation is set for
+     */
+    private static String responseCondition(Response annotation) {
+        if (annotation.value() > 0) {
+            return "response.getStatus() == " + annotation.value();
+        } else if (annotation.min() > 0 || annotation.max() > 0) {
+            StringBuilder condition = new StringBuilder("(");
+            if (annotation.min() > 0) {
+                condition.append("response.getStatus() >= ").append(annotation.min());
                 if (annotation.max() > 0) {
-                    controlFlow.append("response.getStatus() <= ").append(annotation.max());
+                    condition.append(" && ");
                 }
-                controlFlow.append(")");
-                builder.beginControlFlow(controlFlow.toString());
-                addResponseStatements(actionClass, builder, element);
-                builder.endControlFlow();
-            } else if (annotation.value() == Response.ERROR) {
-                builder.beginControlFlow("if (!response.isSuccessful())");
-                addResponseStatements(actionClass, builder, element);
-                builder.endControlFlow();
-            } else {
-                builder.beginControlFlow("if (response.isSuccessful())");
-                addResponseStatements(actionClass, builder, element);
-                builder.endControlFlow();
             }
+            if (annotation.max() > 0) {
+                condition.append("response.getStatus() <= ").append(annotation.max());
+            }
+            return condition.append(")").toString();
+        } else if (annotation.value() == Response.ERROR) {
+            return "!response.isSuccessful()";
+        } else {
+            return "response.isSuccessful()";
         }
     }
 
@@ -316,6 +383,30 @@ public class HttpHelpersGenerator extends Generator<HttpActionClass> {
         String fieldAddress = getFieldAddress(actionClass, element);
         if (TypeUtils.equalType(element, ActionBody.class)) {
             builder.addStatement(fieldAddress + resolver.resolveAccessibleFieldNameToWrite(actionClass.getTypeElement(), element, "response.getBody()"));
+        } else if (isLazyResponse(element)) {
+            TypeMirror bodyType = ((DeclaredType) element.asType()).getTypeArguments().get(0);
+            builder.addStatement(fieldAddress + resolver.resolveAccessibleFieldNameToWrite(actionClass.getTypeElement(), element,
+                    "new $T<$T>(response.getBody(), converter, new $T<$T>(){}.getType())"),
+                    LazyResponse.class, bodyType, TypeToken.class, bodyType);
+        } else if (TypeUtils.equalType(element, ResponseBodyConsumer.class)) {
+            String consumer = fieldAddress + resolver.resolveAccessibleFieldNameToRead(actionClass.getTypeElement(), element);
+            builder
+                    .beginControlFlow("if ($L != null)", consumer)
+                    .beginControlFlow("try")
+                    .addStatement("$T.stream(response.getBody(), $L)", ResponseUtils.class, consumer)
+                    .nextControlFlow("catch($T e)", IOException.class)
+                    .addStatement("throw $T.forDeserialization(e)", ConverterException.class)
+                    .endControlFlow()
+                    .endControlFlow();
+        } else if (TypeUtils.equalType(element, File.class)) {
+            String file = fieldAddress + resolver.resolveAccessibleFieldNameToRead(actionClass.getTypeElement(), element);
+            builder
+                    .beginControlFlow("try")
+                    .addStatement(fieldAddress + resolver.resolveAccessibleFieldNameToWrite(actionClass.getTypeElement(), element, "$T.writeTo(response.getBody(), $L)"),
+                            ResponseUtils.class, file)
+                    .nextControlFlow("catch($T e)", IOException.class)
+                    .addStatement("throw $T.forDeserialization(e)", ConverterException.class)
+                    .endControlFlow();
         } else if (TypeUtils.equalType(element, String.class)) {
             builder
                     .beginControlFlow("try")
@@ -370,6 +461,12 @@ public class HttpHelpersGenerator extends Generator<HttpActionClass> {
         return address;
     }
 
+    static boolean isLazyResponse(Element element) {
+        TypeMirror type = element.asType();
+        return type.getKind() == TypeKind.DECLARED
+                && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(LazyResponse.class.getName());
+    }
+
     private static CodeBlock wrapFieldNotNull(CodeBlock code, String fieldName) {
         return CodeBlock.builder()
                 .beginControlFlow("if (action.$L != null)", fieldName)
@@ -5,8 +5,10 @@ import java.util.List;
 import java.util.Set;
 
 import javax.lang.model.element.Element;
+import javax.lang.model.type.DeclaredType;
 
 import io.techery.janet.HttpActionClass;
+import io.techery.janet.HttpHelpersGenerator;
 import io.techery.janet.compiler.utils.validation.ValidationError;
 import io.techery.janet.compiler.utils.validation.Validator;
 import io.techery.janet.http.annotations.Response;
@@ -40,6 +42,10 @@ public class ResponseValidator implements Validator<HttpActionClass> {
                     && (annotation.min() > 0 || annotation.max() > 0)) {
                 return new ValidationError("There is no possibility to specify status code with using arguments min() and max()", element);
             }
+            if (HttpHelpersGenerator.isLazyResponse(element)
+                    && ((DeclaredType) element.asType()).getTypeArguments().isEmpty()) {
+                return new ValidationError("LazyResponse must declare type of response body", element);
+            }
         }
         return null;
     }
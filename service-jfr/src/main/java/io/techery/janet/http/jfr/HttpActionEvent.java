@@ -0,0 +1,24 @@
+package io.techery.janet.http.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.techery.janet.http.Action")
+@Label("HTTP Action")
+@Description("Whole processing of http action from send to result")
+@Category({"Janet", "HTTP"})
+class HttpActionEvent extends JanetHttpEvent {
+
+    @Label("Status")
+    int status;
+
+    @Label("Response Size")
+    @DataAmount
+    long responseBytes;
+
+    @Label("Failure")
+    String failure;
+}
@@ -0,0 +1,13 @@
+package io.techery.janet.http.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.techery.janet.http.BuildRequest")
+@Label("HTTP Request Build")
+@Description("Filling and building of http action request, including body serialization")
+@Category({"Janet", "HTTP"})
+class HttpBuildRequestEvent extends JanetHttpEvent {
+}
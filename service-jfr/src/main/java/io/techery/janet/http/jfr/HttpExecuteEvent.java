@@ -0,0 +1,28 @@
+package io.techery.janet.http.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.techery.janet.http.Execute")
+@Label("HTTP Execute")
+@Description("Network execution of http action request by HttpClient, once per attempt")
+@Category({"Janet", "HTTP"})
+class HttpExecuteEvent extends JanetHttpEvent {
+
+    @Label("Status")
+    int status;
+
+    @Label("Request Size")
+    @DataAmount
+    long requestBytes;
+
+    @Label("Response Size")
+    @DataAmount
+    long responseBytes;
+
+    @Label("Failure")
+    String failure;
+}
@@ -0,0 +1,16 @@
+package io.techery.janet.http.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.techery.janet.http.ProcessResponse")
+@Label("HTTP Response Processing")
+@Description("Filling of http action with response, including body deserialization")
+@Category({"Janet", "HTTP"})
+class HttpProcessResponseEvent extends JanetHttpEvent {
+
+    @Label("Status")
+    int status;
+}
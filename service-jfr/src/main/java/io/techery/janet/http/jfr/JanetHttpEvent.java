@@ -0,0 +1,20 @@
+package io.techery.janet.http.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Common fields of janet-http events. Event is begun when phase starts and committed when it's over,
+ * so phase duration is the event duration.
+ */
+abstract class JanetHttpEvent extends Event {
+
+    @Label("Action Class")
+    Class<?> actionClass;
+
+    @Label("Method")
+    String method;
+
+    @Label("URL Template")
+    String urlTemplate;
+}
@@ -0,0 +1,136 @@
+package io.techery.janet.http.jfr;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import io.techery.janet.http.HttpActionListener;
+import io.techery.janet.http.annotations.HttpAction;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+import jdk.jfr.EventType;
+
+/**
+ * Emits Java Flight Recorder events of {@linkplain io.techery.janet.HttpActionService HttpActionService} action phases:
+ * <ul>
+ * <li>{@code io.techery.janet.http.Action} for whole action processing</li>
+ * <li>{@code io.techery.janet.http.BuildRequest} for request filling and building</li>
+ * <li>{@code io.techery.janet.http.Execute} for network execution of every attempt</li>
+ * <li>{@code io.techery.janet.http.ProcessResponse} for response deserialization</li>
+ * </ul>
+ * Event is begun when phase starts and committed when it's over, so JFR records its start time and duration.
+ * Events are created only if they are enabled in recording.
+ * <pre>{@code new HttpActionService.Builder(API_URL, client, converter)
+ *         .listener(new JfrHttpActionListener())
+ *         .build();
+ * }
+ * </pre>
+ */
+public class JfrHttpActionListener extends HttpActionListener {
+
+    private static final EventType ACTION = EventType.getEventType(HttpActionEvent.class);
+    private static final EventType BUILD_REQUEST = EventType.getEventType(HttpBuildRequestEvent.class);
+    private static final EventType EXECUTE = EventType.getEventType(HttpExecuteEvent.class);
+    private static final EventType PROCESS_RESPONSE = EventType.getEventType(HttpProcessResponseEvent.class);
+
+    private static final ClassValue<HttpAction> HTTP_ACTIONS = new ClassValue<HttpAction>() {
+        @Override protected HttpAction computeValue(Class<?> type) {
+            return type.getAnnotation(HttpAction.class);
+        }
+    };
+
+    /** action is started, filled and built on the sending thread one after another */
+    private final ThreadLocal<HttpActionEvent> startedAction = new ThreadLocal<HttpActionEvent>();
+    private final ThreadLocal<HttpBuildRequestEvent> buildRequest = new ThreadLocal<HttpBuildRequestEvent>();
+    /** response is processed on the thread it's started on */
+    private final ThreadLocal<HttpProcessResponseEvent> processResponse = new ThreadLocal<HttpProcessResponseEvent>();
+    /**
+     * Events of phases ending on other threads by request, weak as canceled actions and executions are not reported to end.
+     * {@linkplain Request} has identity equality, so requests of different actions don't clash.
+     */
+    private final Map<Request, HttpActionEvent> actions = Collections.synchronizedMap(new WeakHashMap<Request, HttpActionEvent>());
+    private final Map<Request, HttpExecuteEvent> executions = Collections.synchronizedMap(new WeakHashMap<Request, HttpExecuteEvent>());
+
+    @Override public void onActionStart(Class actionClass, long startNanos) {
+        startedAction.set(ACTION.isEnabled() ? begin(new HttpActionEvent()) : null);
+        buildRequest.set(BUILD_REQUEST.isEnabled() ? begin(new HttpBuildRequestEvent()) : null);
+    }
+
+    @Override public void onBuildRequest(Class actionClass, Request request, long startNanos, long endNanos) {
+        HttpActionEvent action = startedAction.get();
+        if (action != null) {
+            startedAction.remove();
+            actions.put(request, action);
+        }
+        HttpBuildRequestEvent event = buildRequest.get();
+        if (event == null) return;
+        buildRequest.remove();
+        if (event.shouldCommit()) {
+            fill(event, actionClass);
+            event.commit();
+        }
+    }
+
+    @Override public void onExecuteStart(Class actionClass, Request request) {
+        if (EXECUTE.isEnabled()) executions.put(request, begin(new HttpExecuteEvent()));
+    }
+
+    @Override public void onExecute(Class actionClass, Request request, Response response, Throwable error,
+            long startNanos, long endNanos, long requestBytes, long responseBytes) {
+        HttpExecuteEvent event = executions.remove(request);
+        if (event == null || !event.shouldCommit()) return;
+        fill(event, actionClass);
+        event.status = response != null ? response.getStatus() : 0;
+        event.requestBytes = requestBytes;
+        event.responseBytes = responseBytes;
+        event.failure = error != null ? error.toString() : null;
+        event.commit();
+    }
+
+    @Override public void onProcessResponseStart(Class actionClass, Response response) {
+        processResponse.set(PROCESS_RESPONSE.isEnabled() ? begin(new HttpProcessResponseEvent()) : null);
+    }
+
+    @Override public void onProcessResponse(Class actionClass, Response response, long startNanos, long endNanos) {
+        HttpProcessResponseEvent event = processResponse.get();
+        if (event == null) return;
+        processResponse.remove();
+        if (!event.shouldCommit()) return;
+        fill(event, actionClass);
+        event.status = response.getStatus();
+        event.commit();
+    }
+
+    @Override public void onActionEnd(Class actionClass, Request request, Response response, Throwable error,
+            long startNanos, long endNanos) {
+        HttpActionEvent event = request != null ? actions.remove(request) : null;
+        if (event == null) {
+            // failed before request is built
+            event = startedAction.get();
+            startedAction.remove();
+            buildRequest.remove();
+        }
+        if (event == null || !event.shouldCommit()) return;
+        fill(event, actionClass);
+        if (response != null) {
+            event.status = response.getStatus();
+            event.responseBytes = response.getBody() != null ? response.getBody().length() : 0;
+        }
+        event.failure = error != null ? error.toString() : null;
+        event.commit();
+    }
+
+    private static <E extends JanetHttpEvent> E begin(E event) {
+        event.begin();
+        return event;
+    }
+
+    private static void fill(JanetHttpEvent event, Class actionClass) {
+        event.actionClass = actionClass;
+        HttpAction httpAction = HTTP_ACTIONS.get(actionClass);
+        if (httpAction != null) {
+            event.method = httpAction.method().name();
+            event.urlTemplate = httpAction.value();
+        }
+    }
+}
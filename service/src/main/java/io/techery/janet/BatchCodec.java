@@ -0,0 +1,197 @@
+package io.techery.janet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import io.techery.janet.body.ActionBody;
+import io.techery.janet.body.BytesArrayBody;
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.MultipartRequestBody;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+import io.techery.janet.http.utils.ResponseUtils;
+
+/**
+ * Encodes requests into single {@code multipart/mixed} body of {@code application/http} parts
+ * and decodes batched response back to responses of individual requests.
+ * Parts are correlated by {@code Content-ID}, response part id could be prefixed with {@code response-}.
+ */
+final class BatchCodec {
+
+    static final String MIMETYPE_HTTP = "application/http";
+
+    private static final String CRLF = "\r\n";
+    private static final String CHARSET = "UTF-8";
+
+    private BatchCodec() {}
+
+    static MultipartRequestBody encode(List<Request> requests) throws IOException {
+        MultipartRequestBody body = new MultipartRequestBody(MultipartRequestBody.MIMETYPE_MIXED);
+        for (int i = 0; i < requests.size(); i++) {
+            MultipartRequestBody.PartBody part = new MultipartRequestBody.PartBody.Builder()
+                    .setBody(new BytesArrayBody(MIMETYPE_HTTP, encodeRequest(requests.get(i))))
+                    .build();
+            body.addPart(String.valueOf(i), null, part);
+        }
+        return body;
+    }
+
+    /**
+     * @return responses in order of requests, {@code null} for requests without response part
+     */
+    static Response[] decode(Response batchResponse, List<Request> requests) throws IOException {
+        String boundary = boundary(batchResponse.getBody() != null ? batchResponse.getBody().mimeType() : null);
+        if (boundary == null) {
+            throw new IOException("Batch response is not multipart: " + batchResponse);
+        }
+        byte[] content = ResponseUtils.readAll(batchResponse.getBody());
+        List<byte[]> parts = splitParts(content, bytes("--" + boundary));
+        Response[] responses = new Response[requests.size()];
+        for (int i = 0; i < parts.size(); i++) {
+            byte[] part = parts.get(i);
+            int headersEnd = indexOf(part, bytes(CRLF + CRLF), 0);
+            if (headersEnd == -1) continue;
+            List<Header> partHeaders = parseHeaders(new String(part, 0, headersEnd, CHARSET));
+            int index = contentIndex(partHeaders, i);
+            if (index < 0 || index >= responses.length) continue;
+            int contentStart = headersEnd + 4;
+            responses[index] = decodeResponse(requests.get(index).getUrl(), part, contentStart);
+        }
+        return responses;
+    }
+
+    private static byte[] encodeRequest(Request request) throws IOException {
+        URL url = new URL(request.getUrl());
+        StringBuilder head = new StringBuilder();
+        head.append(request.getMethod()).append(' ').append(url.getFile().length() == 0 ? "/" : url.getFile()).append(" HTTP/1.1").append(CRLF);
+        head.append("Host: ").append(url.getAuthority()).append(CRLF);
+        for (Header header : request.getHeaders()) {
+            head.append(header.getName()).append(": ").append(header.getValue()).append(CRLF);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ActionBody body = request.getBody();
+        if (body != null) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            body.writeContentTo(content);
+            if (body.mimeType() != null) head.append("Content-Type: ").append(body.mimeType()).append(CRLF);
+            head.append("Content-Length: ").append(content.size()).append(CRLF);
+            head.append(CRLF);
+            out.write(bytes(head.toString()));
+            content.writeTo(out);
+        } else {
+            head.append(CRLF);
+            out.write(bytes(head.toString()));
+        }
+        return out.toByteArray();
+    }
+
+    private static Response decodeResponse(String url, byte[] part, int start) throws IOException {
+        int headEnd = indexOf(part, bytes(CRLF + CRLF), start);
+        int bodyStart = headEnd + 4;
+        if (headEnd == -1) { // response without body
+            headEnd = part.length;
+            bodyStart = part.length;
+        }
+        String[] lines = new String(part, start, headEnd - start, CHARSET).split(CRLF, 2);
+        String[] statusLine = lines[0].split(" ", 3);
+        if (statusLine.length < 2) throw new IOException("Malformed status line of batch response part: " + lines[0]);
+        int status;
+        try {
+            status = Integer.parseInt(statusLine[1]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed status line of batch response part: " + lines[0]);
+        }
+        String reason = statusLine.length > 2 ? statusLine[2] : "";
+        List<Header> headers = lines.length > 1 ? parseHeaders(lines[1]) : new ArrayList<Header>();
+        byte[] body = new byte[part.length - bodyStart];
+        System.arraycopy(part, bodyStart, body, 0, body.length);
+        String contentType = null;
+        for (Header header : headers) {
+            if ("Content-Type".equalsIgnoreCase(header.getName())) contentType = header.getValue();
+        }
+        return new Response(url, status, reason, headers, new BytesArrayBody(contentType, body));
+    }
+
+    private static int contentIndex(List<Header> partHeaders, int defaultIndex) {
+        for (Header header : partHeaders) {
+            if (!"Content-ID".equalsIgnoreCase(header.getName())) continue;
+            String id = header.getValue().trim();
+            if (id.startsWith("<") && id.endsWith(">")) id = id.substring(1, id.length() - 1);
+            if (id.startsWith("response-")) id = id.substring("response-".length());
+            try {
+                return Integer.parseInt(id);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return defaultIndex;
+    }
+
+    private static List<Header> parseHeaders(String block) {
+        List<Header> headers = new ArrayList<Header>();
+        for (String line : block.split(CRLF)) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) continue;
+            headers.add(new Header(line.substring(0, colon).trim(), line.substring(colon + 1).trim()));
+        }
+        return headers;
+    }
+
+    private static String boundary(String mimeType) {
+        if (mimeType == null || !mimeType.toLowerCase(Locale.US).startsWith("multipart/")) return null;
+        for (String parameter : mimeType.split(";")) {
+            parameter = parameter.trim();
+            if (parameter.toLowerCase(Locale.US).startsWith("boundary=")) {
+                String boundary = parameter.substring("boundary=".length());
+                if (boundary.startsWith("\"") && boundary.endsWith("\"") && boundary.length() > 1) {
+                    boundary = boundary.substring(1, boundary.length() - 1);
+                }
+                return boundary;
+            }
+        }
+        return null;
+    }
+
+    private static List<byte[]> splitParts(byte[] content, byte[] delimiter) throws IOException {
+        List<byte[]> parts = new ArrayList<byte[]>();
+        int position = indexOf(content, delimiter, 0);
+        while (position != -1) {
+            int partStart = position + delimiter.length;
+            if (partStart + 1 < content.length && content[partStart] == '-' && content[partStart + 1] == '-') {
+                break; // close delimiter
+            }
+            int lineEnd = indexOf(content, bytes(CRLF), partStart);
+            if (lineEnd == -1) break;
+            partStart = lineEnd + 2;
+            int next = indexOf(content, delimiter, partStart);
+            if (next == -1) break;
+            int partEnd = next;
+            if (partEnd >= 2 && content[partEnd - 2] == '\r' && content[partEnd - 1] == '\n') partEnd -= 2;
+            byte[] part = new byte[Math.max(0, partEnd - partStart)];
+            System.arraycopy(content, partStart, part, 0, part.length);
+            parts.add(part);
+            position = next;
+        }
+        return parts;
+    }
+
+    private static int indexOf(byte[] source, byte[] target, int from) {
+        outer:
+        for (int i = from; i <= source.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (source[i + j] != target[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static byte[] bytes(String value) throws UnsupportedEncodingException {
+        return value.getBytes(CHARSET);
+    }
+}
@@ -0,0 +1,75 @@
+package io.techery.janet;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import io.techery.janet.http.model.Request;
+
+/**
+ * Cancellation state of single action send, shared by service and the call of action:
+ * {@code PENDING -> SENDING -> RECEIVING}, back to {@code PENDING} for retry, and {@code CANCELED} from any of them.
+ * Action result is delivered only after transition to terminal {@code FINISHED}, which can't be canceled.
+ * <p>
+ * Cancel check is a single volatile read. Request is sent only after {@code PENDING -> SENDING} transition,
+ * so once cancel wins the race, request isn't sent, otherwise canceling side finds it {@code SENDING} and cancels client call.
+ */
+final class CallState {
+
+    static final int PENDING = 0;
+    static final int SENDING = 1;
+    static final int RECEIVING = 2;
+    static final int CANCELED = 3;
+    static final int FINISHED = 4;
+
+    private static final AtomicIntegerFieldUpdater<CallState> STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(CallState.class, "state");
+
+    private volatile int state = PENDING;
+    /** built request or {@code null} if it's not built yet */
+    volatile Request request;
+
+    boolean isCanceled() {
+        return state == CANCELED;
+    }
+
+    /**
+     * @return {@code false} if state isn't {@code from}, e.g. it's canceled
+     */
+    boolean transition(int from, int to) {
+        return STATE_UPDATER.compareAndSet(this, from, to);
+    }
+
+    /**
+     * Prepares state for the next attempt
+     *
+     * @return {@code false} if it's canceled
+     */
+    boolean reset() {
+        for (; ; ) {
+            int current = state;
+            if (current == CANCELED || current == FINISHED) return false;
+            if (STATE_UPDATER.compareAndSet(this, current, PENDING)) return true;
+        }
+    }
+
+    /**
+     * @return {@code false} if it's canceled, so result must not be delivered
+     */
+    boolean finish() {
+        for (; ; ) {
+            int current = state;
+            if (current == CANCELED || current == FINISHED) return false;
+            if (STATE_UPDATER.compareAndSet(this, current, FINISHED)) return true;
+        }
+    }
+
+    /**
+     * @return state before cancellation, it's left as is if it's {@code CANCELED} or {@code FINISHED} already
+     */
+    int cancel() {
+        for (; ; ) {
+            int current = state;
+            if (current == CANCELED || current == FINISHED) return current;
+            if (STATE_UPDATER.compareAndSet(this, current, CANCELED)) return current;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package io.techery.janet;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import io.techery.janet.body.ActionBody;
+import io.techery.janet.body.util.StreamUtil;
+import io.techery.janet.http.model.Response;
+
+/**
+ * Body of streamed response which fails on the next read once its action is canceled,
+ * so consumer of long download doesn't outlive the action.
+ */
+final class CancelableBody extends ActionBody {
+
+    private final ActionBody body;
+    private final CallState state;
+
+    private CancelableBody(ActionBody body, CallState state) {
+        super(body.mimeType());
+        this.body = body;
+        this.state = state;
+    }
+
+    static Response wrap(Response response, CallState state) {
+        if (response.getBody() == null) return response;
+        return new Response(response.getUrl(), response.getStatus(), response.getReason(), response.getHeaders(),
+                new CancelableBody(response.getBody(), state)
+        );
+    }
+
+    @Override public long length() {
+        return body.length();
+    }
+
+    @Override public InputStream getContent() throws IOException {
+        return new FilterInputStream(body.getContent()) {
+            @Override public int read() throws IOException {
+                throwIfCanceled();
+                return super.read();
+            }
+
+            @Override public int read(byte[] buffer, int offset, int count) throws IOException {
+                throwIfCanceled();
+                return super.read(buffer, offset, count);
+            }
+        };
+    }
+
+    @Override public void writeContentTo(OutputStream os) throws IOException {
+        StreamUtil.writeAll(getContent(), os, StreamUtil.NETWORK_CHUNK_SIZE);
+    }
+
+    private void throwIfCanceled() throws IOException {
+        if (state.isCanceled()) throw new IOException("Action is canceled");
+    }
+}
@@ -0,0 +1,171 @@
+package io.techery.janet;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import io.techery.janet.http.AsyncHttpClient;
+import io.techery.janet.http.circuitbreaker.CircuitBreakerPolicy;
+import io.techery.janet.http.exception.CircuitBreakerOpenException;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+import io.techery.janet.http.utils.RequestUtils;
+
+/**
+ * Fails requests fast while circuit of their host is open, see {@linkplain CircuitBreakerPolicy}.
+ * Canceled calls are not recorded.
+ */
+final class CircuitBreaker implements AsyncHttpClient {
+
+    private final AsyncHttpClient client;
+    private final CircuitBreakerPolicy policy;
+    private final ConcurrentMap<String, Circuit> circuits;
+    private final ConcurrentMap<Request, Call> calls;
+
+    CircuitBreaker(AsyncHttpClient client, CircuitBreakerPolicy policy) {
+        this.client = client;
+        this.policy = policy;
+        this.circuits = new ConcurrentHashMap<String, Circuit>();
+        this.calls = new ConcurrentHashMap<Request, Call>();
+    }
+
+    @Override public Response execute(Request request, RequestCallback requestCallback) throws IOException {
+        return client.execute(request, requestCallback);
+    }
+
+    @Override public void enqueue(Request request, RequestCallback requestCallback, ResponseCallback responseCallback) {
+        String host = RequestUtils.getHost(request.getUrl());
+        if (host == null) {
+            client.enqueue(request, requestCallback, responseCallback);
+            return;
+        }
+        Circuit circuit = circuit(host);
+        if (!circuit.tryAcquire()) {
+            responseCallback.onFailure(new CircuitBreakerOpenException(request, host));
+            return;
+        }
+        Call call = new Call(request, circuit, responseCallback);
+        calls.put(request, call);
+        client.enqueue(request, requestCallback, call);
+    }
+
+    @Override public void cancel(Request request) {
+        Call call = calls.remove(request);
+        if (call != null) call.circuit.release();
+        client.cancel(request);
+    }
+
+    private Circuit circuit(String host) {
+        Circuit circuit = circuits.get(host);
+        if (circuit == null) {
+            Circuit newCircuit = new Circuit();
+            circuit = circuits.putIfAbsent(host, newCircuit);
+            if (circuit == null) circuit = newCircuit;
+        }
+        return circuit;
+    }
+
+    private final class Call implements ResponseCallback {
+
+        private final Request request;
+        private final Circuit circuit;
+        private final ResponseCallback callback;
+        private final long startTime;
+
+        private Call(Request request, Circuit circuit, ResponseCallback callback) {
+            this.request = request;
+            this.circuit = circuit;
+            this.callback = callback;
+            this.startTime = System.nanoTime();
+        }
+
+        @Override public void onResponse(Response response) {
+            record(response.getStatus() >= 500);
+            callback.onResponse(response);
+        }
+
+        @Override public void onFailure(Throwable error) {
+            record(true);
+            callback.onFailure(error);
+        }
+
+        private void record(boolean failed) {
+            if (calls.remove(request) == null) return; // canceled
+            long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            circuit.record(failed, duration >= policy.slowCallDurationMillis());
+        }
+    }
+
+    private final class Circuit {
+
+        private static final int CLOSED = 0;
+        private static final int OPEN = 1;
+        private static final int HALF_OPEN = 2;
+
+        private static final byte FAILED = 1;
+        private static final byte SLOW = 2;
+
+        private final byte[] outcomes = new byte[policy.windowSize()];
+        private int state = CLOSED;
+        private int next;
+        private int count;
+        private int failedCount;
+        private int slowCount;
+        private long openedAt;
+        /** trial calls permitted in half-open state */
+        private int permittedCalls;
+
+        private synchronized boolean tryAcquire() {
+            if (state == OPEN) {
+                if (System.currentTimeMillis() - openedAt < policy.openDurationMillis()) return false;
+                state = HALF_OPEN;
+                reset();
+                permittedCalls = 0;
+            }
+            if (state == HALF_OPEN) {
+                if (permittedCalls >= policy.halfOpenCalls()) return false;
+                permittedCalls++;
+            }
+            return true;
+        }
+
+        private synchronized void release() {
+            if (state == HALF_OPEN && permittedCalls > 0) permittedCalls--;
+        }
+
+        private synchronized void record(boolean failed, boolean slow) {
+            if (state == OPEN) return;
+            if (count == outcomes.length) {
+                byte eldest = outcomes[next];
+                if ((eldest & FAILED) != 0) failedCount--;
+                if ((eldest & SLOW) != 0) slowCount--;
+            } else {
+                count++;
+            }
+            outcomes[next] = (byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0));
+            next = (next + 1) % outcomes.length;
+            if (failed) failedCount++;
+            if (slow) slowCount++;
+            //
+            int requiredCalls = state == HALF_OPEN ? Math.min(policy.halfOpenCalls(), outcomes.length) : policy.minimumCalls();
+            if (count < requiredCalls) return;
+            boolean exceeded = failedCount >= policy.failureRateThreshold() * count
+                    || slowCount >= policy.slowCallRateThreshold() * count;
+            if (exceeded) {
+                state = OPEN;
+                openedAt = System.currentTimeMillis();
+            } else if (state == HALF_OPEN) {
+                state = CLOSED;
+                reset();
+            }
+        }
+
+        private void reset() {
+            next = 0;
+            count = 0;
+            failedCount = 0;
+            slowCount = 0;
+        }
+    }
+}
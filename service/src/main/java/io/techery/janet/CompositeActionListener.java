@@ -0,0 +1,74 @@
+package io.techery.janet;
+
+import java.util.List;
+
+import io.techery.janet.http.HttpActionListener;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+
+/**
+ * Notifies several listeners in order
+ */
+final class CompositeActionListener extends HttpActionListener {
+
+    private final HttpActionListener[] listeners;
+
+    private CompositeActionListener(HttpActionListener[] listeners) {
+        this.listeners = listeners;
+    }
+
+    /**
+     * @return the only listener, composite one or {@code null} if there are no listeners
+     */
+    static HttpActionListener of(List<HttpActionListener> listeners) {
+        if (listeners.isEmpty()) return null;
+        if (listeners.size() == 1) return listeners.get(0);
+        return new CompositeActionListener(listeners.toArray(new HttpActionListener[listeners.size()]));
+    }
+
+    @Override public void onActionStart(Class actionClass, long startNanos) {
+        for (HttpActionListener listener : listeners) listener.onActionStart(actionClass, startNanos);
+    }
+
+    @Override public void onFillRequest(Class actionClass, long startNanos, long endNanos) {
+        for (HttpActionListener listener : listeners) listener.onFillRequest(actionClass, startNanos, endNanos);
+    }
+
+    @Override public void onBuildRequest(Class actionClass, Request request, long startNanos, long endNanos) {
+        for (HttpActionListener listener : listeners) listener.onBuildRequest(actionClass, request, startNanos, endNanos);
+    }
+
+    @Override public void onExecuteStart(Class actionClass, Request request) {
+        for (HttpActionListener listener : listeners) listener.onExecuteStart(actionClass, request);
+    }
+
+    @Override public void onExecute(Class actionClass, Request request, Response response, Throwable error,
+            long startNanos, long endNanos, long requestBytes, long responseBytes) {
+        for (HttpActionListener listener : listeners) {
+            listener.onExecute(actionClass, request, response, error, startNanos, endNanos, requestBytes, responseBytes);
+        }
+    }
+
+    @Override public void onProcessResponseStart(Class actionClass, Response response) {
+        for (HttpActionListener listener : listeners) listener.onProcessResponseStart(actionClass, response);
+    }
+
+    @Override public void onProcessResponse(Class actionClass, Response response, long startNanos, long endNanos) {
+        for (HttpActionListener listener : listeners) listener.onProcessResponse(actionClass, response, startNanos, endNanos);
+    }
+
+    @Override public void onUploadProgress(Class actionClass, Request request, int progress) {
+        for (HttpActionListener listener : listeners) listener.onUploadProgress(actionClass, request, progress);
+    }
+
+    @Override public void onDownloadProgress(Class actionClass, Request request, int progress) {
+        for (HttpActionListener listener : listeners) listener.onDownloadProgress(actionClass, request, progress);
+    }
+
+    @Override public void onActionEnd(Class actionClass, Request request, Response response, Throwable error,
+            long startNanos, long endNanos) {
+        for (HttpActionListener listener : listeners) {
+            listener.onActionEnd(actionClass, request, response, error, startNanos, endNanos);
+        }
+    }
+}
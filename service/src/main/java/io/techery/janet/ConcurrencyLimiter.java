@@ -0,0 +1,208 @@
+package io.techery.janet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.techery.janet.http.AsyncHttpClient;
+import io.techery.janet.http.exception.ConcurrencyLimitException;
+import io.techery.janet.http.limit.ConcurrencyLimitPolicy;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+import io.techery.janet.http.utils.RequestUtils;
+
+/**
+ * Keeps number of in-flight requests of every host within adaptive limit, see {@linkplain ConcurrencyLimitPolicy}.
+ * Requests above the limit wait in queue and are sent as soon as in-flight ones complete.
+ */
+final class ConcurrencyLimiter implements AsyncHttpClient {
+
+    /** Minimal latency is forgotten periodically to follow changes of host latency */
+    private static final int MIN_LATENCY_RESET_SAMPLES = 500;
+
+    private final AsyncHttpClient client;
+    private final ConcurrencyLimitPolicy policy;
+    private final ConcurrentMap<String, Limit> limits;
+    private final ConcurrentMap<Request, Call> calls;
+
+    ConcurrencyLimiter(AsyncHttpClient client, ConcurrencyLimitPolicy policy) {
+        this.client = client;
+        this.policy = policy;
+        this.limits = new ConcurrentHashMap<String, Limit>();
+        this.calls = new ConcurrentHashMap<Request, Call>();
+    }
+
+    @Override public Response execute(Request request, RequestCallback requestCallback) throws IOException {
+        return client.execute(request, requestCallback);
+    }
+
+    @Override public void enqueue(Request request, RequestCallback requestCallback, ResponseCallback responseCallback) {
+        String host = RequestUtils.getHost(request.getUrl());
+        if (host == null) {
+            client.enqueue(request, requestCallback, responseCallback);
+            return;
+        }
+        Limit limit = limit(host);
+        Call call = new Call(limit, request, requestCallback, responseCallback);
+        calls.put(request, call);
+        boolean send = false;
+        boolean reject = false;
+        synchronized (limit) {
+            if (limit.inFlight < limit.limit()) {
+                limit.inFlight++;
+                send = true;
+            } else if (limit.queue.size() < policy.maxQueueSize()) {
+                limit.queue.add(call);
+            } else {
+                reject = true;
+            }
+        }
+        if (send) {
+            call.send();
+        } else if (reject) {
+            calls.remove(request);
+            responseCallback.onFailure(new ConcurrencyLimitException(request, host));
+        }
+    }
+
+    @Override public void cancel(Request request) {
+        Call call = calls.remove(request);
+        if (call == null) {
+            client.cancel(request);
+            return;
+        }
+        synchronized (call.limit) {
+            if (call.limit.queue.remove(call)) return;
+        }
+        // slot is freed right away, as client may never call back on canceled request
+        List<Call> next = call.complete(false, true);
+        client.cancel(request);
+        call.sendAll(next);
+    }
+
+    /**
+     * @return current limit of host or initial one if there were no requests to it
+     */
+    int getLimit(String host) {
+        Limit limit = limits.get(host);
+        if (limit == null) return policy.initialLimit();
+        synchronized (limit) {
+            return limit.limit();
+        }
+    }
+
+    int getQueueDepth(String host) {
+        Limit limit = limits.get(host);
+        if (limit == null) return 0;
+        synchronized (limit) {
+            return limit.queue.size();
+        }
+    }
+
+    private Limit limit(String host) {
+        Limit limit = limits.get(host);
+        if (limit == null) {
+            Limit newLimit = new Limit();
+            limit = limits.putIfAbsent(host, newLimit);
+            if (limit == null) limit = newLimit;
+        }
+        return limit;
+    }
+
+    private final class Limit {
+
+        private final LinkedList<Call> queue = new LinkedList<Call>();
+        private double limit = policy.initialLimit();
+        private int inFlight;
+        private long minLatency = Long.MAX_VALUE;
+        private int samples;
+
+        private int limit() {
+            return (int) limit;
+        }
+
+        /**
+         * @return calls to send as in-flight ones
+         */
+        private List<Call> complete(Call call, boolean dropped, boolean canceled) {
+            inFlight--;
+            if (!canceled) update(call, dropped);
+            List<Call> calls = null;
+            while (inFlight < limit() && !queue.isEmpty()) {
+                if (calls == null) calls = new ArrayList<Call>(2);
+                calls.add(queue.poll());
+                inFlight++;
+            }
+            return calls;
+        }
+
+        private void update(Call call, boolean dropped) {
+            long latency = System.nanoTime() - call.startTime;
+            if (++samples % MIN_LATENCY_RESET_SAMPLES == 0) minLatency = latency;
+            minLatency = Math.min(minLatency, latency);
+            if (dropped || latency > minLatency * policy.latencyTolerance()) {
+                limit = Math.max(policy.minLimit(), limit * policy.backoffRatio());
+            } else if (call.inFlight * 2 >= limit()) {
+                limit = Math.min(policy.maxLimit(), limit + 1 / limit);
+            }
+        }
+    }
+
+    private final class Call implements ResponseCallback {
+
+        private final Limit limit;
+        private final Request request;
+        private final RequestCallback requestCallback;
+        private final ResponseCallback responseCallback;
+        /** set once slot of call is freed by its completion or cancel */
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private long startTime;
+        /** number of in-flight calls at start */
+        private int inFlight;
+
+        private Call(Limit limit, Request request, RequestCallback requestCallback, ResponseCallback responseCallback) {
+            this.limit = limit;
+            this.request = request;
+            this.requestCallback = requestCallback;
+            this.responseCallback = responseCallback;
+        }
+
+        private void send() {
+            if (completed.get()) return; // canceled after it's polled from queue
+            synchronized (limit) {
+                inFlight = limit.inFlight;
+            }
+            startTime = System.nanoTime();
+            client.enqueue(request, requestCallback, this);
+        }
+
+        @Override public void onResponse(Response response) {
+            List<Call> next = complete(response.getStatus() == 429 || response.getStatus() == 503, false);
+            responseCallback.onResponse(response);
+            sendAll(next);
+        }
+
+        @Override public void onFailure(Throwable error) {
+            List<Call> next = complete(true, false);
+            responseCallback.onFailure(error);
+            sendAll(next);
+        }
+
+        private List<Call> complete(boolean dropped, boolean canceled) {
+            if (!completed.compareAndSet(false, true)) return null;
+            calls.remove(request, this);
+            synchronized (limit) {
+                return limit.complete(this, dropped, canceled);
+            }
+        }
+
+        private void sendAll(List<Call> calls) {
+            if (calls == null) return;
+            for (Call call : calls) call.send();
+        }
+    }
+}
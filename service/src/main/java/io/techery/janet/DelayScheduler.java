@@ -0,0 +1,22 @@
+package io.techery.janet;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Shared timer for delayed work of {@linkplain HttpActionService}, e.g. batching windows and retry backoff.
+ * Scheduled tasks must be short and must not block.
+ */
+final class DelayScheduler {
+
+    static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "janet-http-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private DelayScheduler() {}
+}
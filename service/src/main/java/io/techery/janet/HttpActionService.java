@@ -1,31 +1,68 @@
 package io.techery.janet;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import io.techery.janet.converter.Converter;
 import io.techery.janet.converter.ConverterException;
+import io.techery.janet.http.AsyncHttpClient;
+import io.techery.janet.http.DownloadProgressAction;
+import io.techery.janet.http.ExecutorAsyncHttpClient;
+import io.techery.janet.http.HttpActionListener;
 import io.techery.janet.http.HttpClient;
+import io.techery.janet.http.HttpInterceptor;
+import io.techery.janet.http.PrioritizedAction;
+import io.techery.janet.http.ResponseBodyConsumer;
+import io.techery.janet.http.TimeoutAction;
+import io.techery.janet.http.TracedAction;
 import io.techery.janet.http.annotations.Body;
 import io.techery.janet.http.annotations.Field;
 import io.techery.janet.http.annotations.HttpAction;
 import io.techery.janet.http.annotations.Part;
 import io.techery.janet.http.annotations.Path;
 import io.techery.janet.http.annotations.Query;
+import io.techery.janet.http.annotations.RateLimit;
 import io.techery.janet.http.annotations.RequestHeader;
 import io.techery.janet.http.annotations.ResponseHeader;
+import io.techery.janet.http.annotations.Retry;
 import io.techery.janet.http.annotations.Status;
+import io.techery.janet.http.annotations.Timeout;
+import io.techery.janet.http.cache.ResponseCache;
+import io.techery.janet.http.cache.RevalidationCache;
+import io.techery.janet.http.circuitbreaker.CircuitBreakerPolicy;
+import io.techery.janet.http.exception.CircuitBreakerOpenException;
+import io.techery.janet.http.exception.ConcurrencyLimitException;
+import io.techery.janet.http.exception.DeadlineExceededException;
 import io.techery.janet.http.exception.HttpDeserializationException;
 import io.techery.janet.http.exception.HttpException;
 import io.techery.janet.http.exception.HttpSerializationException;
+import io.techery.janet.http.exception.LoadSheddingException;
+import io.techery.janet.http.exception.RateLimitException;
+import io.techery.janet.http.exception.RequestQueuedException;
 import io.techery.janet.http.exception.HttpServiceException;
+import io.techery.janet.http.limit.ConcurrencyLimitPolicy;
+import io.techery.janet.http.metrics.HttpMetrics;
+import io.techery.janet.http.model.LazyResponse;
 import io.techery.janet.http.model.Request;
 import io.techery.janet.http.model.Response;
+import io.techery.janet.http.outbox.OutboxListener;
+import io.techery.janet.http.outbox.RequestJournal;
+import io.techery.janet.http.ratelimit.RateLimitPolicy;
+import io.techery.janet.http.retry.RetryPolicy;
+import io.techery.janet.http.tracing.TracingPolicy;
+import io.techery.janet.http.utils.RequestUtils;
+import io.techery.janet.http.utils.ResponseUtils;
 
 /**
  * Provide HTTP/HTTPS requests execution. Each HTTP request for {@linkplain HttpActionService} is an individual class that contains
@@ -45,11 +82,17 @@ import io.techery.janet.http.model.Response;
  * </ul>
  * To process response, special annotations can be used:
  * <ul>
- * <li>{@linkplain io.techery.janet.http.annotations.Response @Response} for getting response body</li>
+ * <li>{@linkplain io.techery.janet.http.annotations.Response @Response} for getting response body,
+ * or for streaming it in chunks to {@linkplain ResponseBodyConsumer} set to the field, or to {@linkplain java.io.File}</li>
  * <li>{@linkplain Status @Status} for getting response status. Field types Integer, Long, int or long can be used
  * to get status code or use boolean to know that request was sent successfully</li>
  * <li>{@linkplain ResponseHeader @ResponseHeader} for getting response headers</li>
  * </ul>
+ * Failed requests of action annotated with {@linkplain Retry @Retry} are sent again with backoff,
+ * rate of requests of action annotated with {@linkplain RateLimit @RateLimit} is limited,
+ * action annotated with {@linkplain Timeout @Timeout} fails if it doesn't complete in time,
+ * request of action annotated with {@linkplain io.techery.janet.http.annotations.Outbox @Outbox} which fails offline
+ * is stored to be replayed later, see {@linkplain Builder#outbox(RequestJournal, OutboxListener)}.
  */
 final public class HttpActionService extends ActionService {
 
@@ -58,23 +101,49 @@ final public class HttpActionService extends ActionService {
     final static String HELPERS_FACTORY_CLASS_NAME = HELPERS_FACTORY_CLASS_PACKAGE + "." + HELPERS_FACTORY_CLASS_SIMPLE_NAME;
 
     private ActionHelperFactory actionHelperFactory;
-    private final Map<Class, ActionHelper> actionHelperCache;
-    private final Map<Object, List<Request>> runningRequests;
+    private final ConcurrentMap<Class, ActionHelper> actionHelperCache;
+    private final ConcurrentMap<Class, ActionOptions> actionOptionsCache;
+    private final ConcurrentMap<Object, CallState> runningActions;
 
-    private final HttpClient client;
+    private final AsyncHttpClient client;
     private final Converter converter;
     private final String baseUrl;
+    private final ResponseCache responseCache;
+    private final RevalidationCache revalidationCache;
+    private final RequestCoalescer coalescer;
+    private final RetryPolicy retryPolicy;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final PriorityScheduler scheduler;
+    private final HttpActionListener listener;
+    private final RequestTracer tracer;
+    private final RequestOutbox outbox;
+    /** token buckets by path template */
+    private final Map<String, TokenBucket> rateLimits;
+    private final boolean blockingClient;
+    private final Executor lazyConversionExecutor;
 
     private static final int PROGRESS_THRESHOLD = 5;
 
+    /** Blocking clients are executed right on the thread which sends action */
+    private static final Executor CALLING_THREAD_EXECUTOR = new Executor() {
+        @Override public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
     public HttpActionService(String baseUrl, HttpClient client, Converter converter) {
+        this(new Builder(baseUrl, client, converter));
+    }
+
+    private HttpActionService(Builder builder) {
+        String baseUrl = builder.baseUrl;
         if (baseUrl == null) {
             throw new IllegalArgumentException("baseUrl == null");
         }
-        if (client == null) {
+        if (builder.client == null) {
             throw new IllegalArgumentException("client == null");
         }
-        if (converter == null) {
+        if (builder.converter == null) {
             throw new IllegalArgumentException("converter == null");
         }
         try {
@@ -83,11 +152,73 @@ final public class HttpActionService extends ActionService {
             throw new IllegalArgumentException("baseUrl is not valid", t);
         }
         this.baseUrl = baseUrl;
+        this.blockingClient = !(builder.client instanceof AsyncHttpClient) && builder.clientExecutor == null;
+        AsyncHttpClient client;
+        if (builder.client instanceof AsyncHttpClient) {
+            client = (AsyncHttpClient) builder.client;
+        } else {
+            client = new ExecutorAsyncHttpClient(builder.client,
+                    builder.clientExecutor != null ? builder.clientExecutor : CALLING_THREAD_EXECUTOR);
+        }
+        if (!builder.interceptors.isEmpty()) {
+            client = new InterceptorChain(client, builder.interceptors);
+        }
+        if (builder.batchUrl != null) {
+            if (blockingClient) {
+                throw new IllegalArgumentException("Request batching requires AsyncHttpClient or clientExecutor");
+            }
+            client = new RequestBatcher(client, builder.batchUrl, builder.batchWindowMillis, builder.maxBatchSize);
+        }
+        if (builder.concurrencyLimitPolicy != null) {
+            client = concurrencyLimiter = new ConcurrencyLimiter(client, builder.concurrencyLimitPolicy);
+        } else {
+            concurrencyLimiter = null;
+        }
+        if (builder.circuitBreakerPolicy != null) {
+            client = new CircuitBreaker(client, builder.circuitBreakerPolicy);
+        }
+        if (builder.hedgeDelayMillis != -1) {
+            if (blockingClient) {
+                throw new IllegalArgumentException("Request hedging requires AsyncHttpClient or clientExecutor");
+            }
+            client = new RequestHedger(client, builder.hedgeDelayMillis, builder.adaptiveHedging);
+        }
+        if (builder.outboxJournal != null) {
+            if (blockingClient) {
+                throw new IllegalArgumentException("Outbox requires AsyncHttpClient or clientExecutor");
+            }
+            this.outbox = new RequestOutbox(builder.outboxJournal, client, builder.outboxListener);
+        } else {
+            this.outbox = null;
+        }
         this.client = client;
-        this.converter = converter;
-        this.actionHelperCache = new HashMap<Class, ActionHelper>();
-        this.runningRequests = new ConcurrentHashMap<Object, List<Request>>();
+        this.converter = builder.converter;
+        this.responseCache = builder.responseCache;
+        this.revalidationCache = builder.revalidationCache;
+        this.coalescer = builder.coalesceRequests ? new RequestCoalescer(client) : null;
+        this.retryPolicy = builder.retryPolicy;
+        this.listener = CompositeActionListener.of(builder.listeners);
+        this.tracer = builder.tracingPolicy != null ? new RequestTracer(builder.tracingPolicy) : null;
+        this.lazyConversionExecutor = builder.lazyConversionExecutor;
+        this.scheduler = builder.maxRunningRequests > 0 ?
+                new PriorityScheduler(builder.maxRunningRequests, builder.maxQueueSize) : null;
+        this.actionHelperCache = new ConcurrentHashMap<Class, ActionHelper>();
+        this.actionOptionsCache = new ConcurrentHashMap<Class, ActionOptions>();
+        this.rateLimits = new HashMap<String, TokenBucket>();
+        for (Map.Entry<String, RateLimitPolicy> entry : builder.rateLimits.entrySet()) {
+            rateLimits.put(entry.getKey(), new TokenBucket(entry.getValue()));
+        }
+        this.runningActions = new ConcurrentHashMap<Object, CallState>();
         loadActionHelperFactory();
+        if (outbox != null) outbox.replay();
+    }
+
+    /**
+     * Replays requests stored in outbox unless replay is running already, e.g. once network is available again.
+     * Replay is started on creation of service and on every response as well.
+     */
+    public void replayOutbox() {
+        if (outbox != null) outbox.replay();
     }
 
     @Override protected Class getSupportedAnnotationType() {
@@ -97,101 +228,245 @@ final public class HttpActionService extends ActionService {
     @Override protected <A> void sendInternal(ActionHolder<A> holder) throws HttpServiceException {
         callback.onStart(holder);
         A action = holder.action();
-        final ActionHelper<A> helper = getActionHelper(action.getClass());
+        Class actionClass = action.getClass();
+        long startNanos = nanoTime();
+        if (listener != null) listener.onActionStart(actionClass, startNanos);
+        final ActionHelper<A> helper = getActionHelper(actionClass);
         if (helper == null) {
             throw new JanetInternalException("Something was happened with code generator. Check dependence of janet-http-compiler");
         }
-        putRunningAction(action);
-        RequestBuilder builder = new RequestBuilder(baseUrl, converter);
-        Response response = null;
+        CallState state = new CallState();
+        runningActions.put(action, state);
+        ActionOptions options = getActionOptions(actionClass);
+        RetryPolicy retryPolicy = options.retryPolicy;
+        long timeoutMillis = 0;
+        if (action instanceof TimeoutAction) {
+            timeoutMillis = ((TimeoutAction) action).getTimeoutMillis();
+        }
+        if (timeoutMillis <= 0) {
+            timeoutMillis = options.timeoutMillis;
+        }
+        long deadlineNanos = timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0;
+        RequestBuilder builder = new RequestBuilder(baseUrl, converter, deadlineNanos);
         Request request = null;
+        Response storedResponse = null;
+        RequestTracer.ActiveSpan span = null;
         try {
             builder = helper.fillRequest(builder, action);
+            long filledNanos = nanoTime();
+            if (listener != null) listener.onFillRequest(actionClass, startNanos, filledNanos);
+            if (tracer != null) span = tracer.start(action, builder);
             request = builder.build();
-            putRunningRequest(action, request);
-            throwIfCanceled(action, request);
-            try {
-                response = client.execute(request, new ActionRequestCallback<A>(holder) {
-                    private int lastProgress;
-
-                    @Override public void onProgress(int progress) {
-                        if (progress > lastProgress + PROGRESS_THRESHOLD) {
-                            callback.onProgress(holder, progress);
-                            lastProgress = progress;
-                        }
+            if (retryPolicy != null) {
+                request = RequestUtils.replayable(request);
+            }
+            if (revalidationCache != null && !helper.isStreamingResponse()) {
+                storedResponse = revalidationCache.get(request);
+                if (storedResponse != null) request = RevalidationCache.conditionalRequest(request, storedResponse);
+            }
+            if (listener != null) listener.onBuildRequest(actionClass, request, filledNanos, nanoTime());
+            state.request = request;
+            if (state.isCanceled()) return;
+        } catch (Throwable e) {
+            runningActions.remove(action, state);
+            HttpServiceException error = toServiceException(e, request, null);
+            if (listener != null) listener.onActionEnd(actionClass, request, null, error, startNanos, nanoTime());
+            if (span != null) tracer.finish(span, actionClass, request, null, error, 0);
+            throw error;
+        }
+        HttpAction.Priority priority = null;
+        if (action instanceof PrioritizedAction) {
+            priority = ((PrioritizedAction) action).getPriority();
+        }
+        if (priority == null) {
+            priority = options.priority;
+        }
+        ActionCall<A> call = new ActionCall<A>(holder, state, helper, request, storedResponse, options, priority, span, startNanos);
+        if (deadlineNanos != 0) {
+            call.startDeadline(timeoutMillis, deadlineNanos);
+        }
+        if (call.queueable && outbox.hasPending()) {
+            // keep order of requests stored before
+            if (call.enqueueToOutbox(null)) {
+                outbox.replay();
+                return;
+            }
+        }
+        if (responseCache != null) {
+            Response cachedResponse = responseCache.get(request);
+            if (cachedResponse != null) {
+                call.complete(cachedResponse, false);
+                return;
+            }
+        }
+        dispatch(request, call);
+    }
+
+    private void dispatch(final Request request, final ActionCall call) {
+        if (call.tokenBucket != null) {
+            long waitMillis = call.tokenBucket.acquire();
+            if (waitMillis == -1) {
+                call.onFailure(new RateLimitException(request));
+                return;
+            }
+            if (waitMillis > 0) {
+                boolean waited = call.runDelayed(waitMillis, new Runnable() {
+                    @Override public void run() {
+                        if (!call.isCanceled()) schedule(request, call);
                     }
                 });
-            } finally {
-                throwIfCanceled(action, request);
-            }
-            action = helper.onResponse(action, response, converter);
-            if (!response.isSuccessful()) {
-                throw HttpException.forResponse(request, response);
+                if (!waited) call.onFailure(new RateLimitException(request));
+                return;
             }
-            throwIfCanceled(action, request);
-        } catch (CancelException e) {
+        }
+        schedule(request, call);
+    }
+
+    private void schedule(Request request, ActionCall call) {
+        if (scheduler != null) {
+            scheduler.submit(request, call.priority, call);
+        } else {
+            execute(request, call);
+        }
+    }
+
+    private void execute(Request request, ActionCall call) {
+        if (!call.state.transition(CallState.PENDING, CallState.SENDING)) {
+            // canceled while waiting for the turn
+            PriorityScheduler.Task next = scheduler != null ? scheduler.finish(request) : null;
+            if (next != null) scheduler.execute(next);
             return;
-        } catch (ConverterException e) {
-            Throwable cause;
-            if (response != null) {
-                cause = new HttpDeserializationException(e, response);
-            } else {
-                cause = new HttpSerializationException(e, request);
-            }
-            throw new HttpServiceException(cause);
-        } catch (HttpException e) {
-            throw new HttpServiceException(e);
-        } catch (Throwable e) { // else is request related issue
-            throw new HttpServiceException(HttpException.forRequest(request, e));
-        } finally {
-            if (request != null) {
-                List<Request> requests = runningRequests.get(action);
-                if (requests != null) {
-                    requests.remove(request);
-                }
-            } else {
-                runningRequests.remove(action);
+        }
+        call.executeStartNanos = nanoTime();
+        if (listener != null) listener.onExecuteStart(call.holder.action().getClass(), request);
+        if (coalescer != null && !call.streamingResponse && RequestCoalescer.isCoalescable(request)) {
+            coalescer.execute(request, call, call);
+        } else {
+            client.enqueue(request, call, call);
+        }
+        // cancel could come while request was handed to client and miss it
+        if (call.state.isCanceled()) {
+            cancelExecution(request);
+            if (blockingClient && scheduler != null) {
+                // blocking client is done with canceled request, so its place is freed on this thread, see abort
+                PriorityScheduler.Task next = scheduler.finish(request);
+                if (next != null) scheduler.execute(next);
             }
         }
-        this.callback.onSuccess(holder);
+    }
+
+    private void cancelExecution(Request request) {
+        if (coalescer == null || !coalescer.cancel(request)) {
+            client.cancel(request);
+        }
     }
 
     @Override protected <A> void cancel(ActionHolder<A> holder) {
-        A action = holder.action();
-        List<Request> requests = runningRequests.remove(action);
+        CallState state = runningActions.remove(holder.action());
+        if (state == null) return;
+        int previousState = state.cancel();
+        Request request = state.request;
+        if (request == null) return; // it's not built yet
+        abort(request, previousState);
+    }
+
+    /**
+     * Stops canceled request wherever it is: waiting in the queue or being executed by client
+     *
+     * @param previousState state of request before it was canceled
+     */
+    private void abort(Request request, int previousState) {
         try {
-            if (requests != null) {
-                for (Request request : requests) {
-                    client.cancel(request);
+            if (previousState == CallState.PENDING) {
+                // not sent, but could wait in the queue
+                if (scheduler != null) scheduler.cancel(request);
+            } else if (previousState == CallState.SENDING) {
+                // non-blocking client only enqueues the next request, but blocking one would run it right on
+                // the thread which cancels this one, so then its place is held till the thread executing it returns from client
+                if (scheduler != null && !blockingClient) {
+                    PriorityScheduler.Task next = scheduler.finish(request);
+                    if (next != null) scheduler.execute(next);
                 }
+                cancelExecution(request);
             }
         } catch (Throwable ignored) {}
     }
 
-    private void putRunningRequest(Object action, Request request) {
-        putRunningAction(action);
-        runningRequests.get(action).add(request);
+    /**
+     * @return timestamp for {@linkplain HttpActionListener} or 0 if there is no listener
+     */
+    private long nanoTime() {
+        return listener != null ? System.nanoTime() : 0;
     }
 
-    private void putRunningAction(Object action) {
-        if (!runningRequests.containsKey(action)) {
-            runningRequests.put(action, new CopyOnWriteArrayList<Request>());
+    private static HttpServiceException toServiceException(Throwable e, Request request, Response response) {
+        if (e instanceof ConverterException) {
+            Throwable cause;
+            if (response != null) {
+                cause = new HttpDeserializationException((ConverterException) e, response);
+            } else {
+                cause = new HttpSerializationException((ConverterException) e, request);
+            }
+            return new HttpServiceException(cause);
+        }
+        if (e instanceof HttpException) {
+            return new HttpServiceException(e);
+        }
+        // else is request related issue
+        return new HttpServiceException(HttpException.forRequest(request, e));
+    }
+
+    /**
+     * Resolves and caches helpers for given action classes beforehand,
+     * so first send of such actions doesn't pay for helper creation.
+     *
+     * @throws IllegalArgumentException if there is no generated helper for some of classes
+     */
+    public void prewarm(Class... actionClasses) {
+        for (Class actionClass : actionClasses) {
+            if (getActionHelper(actionClass) == null) {
+                throw new IllegalArgumentException("There is no helper for " + actionClass + ". Is it annotated with @HttpAction?");
+            }
+            getActionOptions(actionClass);
         }
     }
 
-    private void throwIfCanceled(Object action, Request request) throws CancelException {
-        List<Request> requests = runningRequests.get(action);
-        if (requests == null || !requests.contains(request)) {
-            throw new CancelException();
+    private ActionOptions getActionOptions(Class actionClass) {
+        ActionOptions options = actionOptionsCache.get(actionClass);
+        if (options == null) {
+            options = new ActionOptions(actionClass, retryPolicy, rateLimits);
+            ActionOptions cached = actionOptionsCache.putIfAbsent(actionClass, options);
+            if (cached != null) options = cached;
         }
+        return options;
+    }
+
+    /**
+     * @param host host with port if it's set, e.g. {@code api.example.com:8080}
+     * @return current limit of in-flight requests to host or -1 if concurrency isn't limited
+     * @see Builder#concurrencyLimit(ConcurrencyLimitPolicy)
+     */
+    public int getConcurrencyLimit(String host) {
+        return concurrencyLimiter != null ? concurrencyLimiter.getLimit(host) : -1;
+    }
+
+    /**
+     * @param host host with port if it's set, e.g. {@code api.example.com:8080}
+     * @return number of requests waiting for concurrency limit of host
+     * @see Builder#concurrencyLimit(ConcurrencyLimitPolicy)
+     */
+    public int getQueueDepth(String host) {
+        return concurrencyLimiter != null ? concurrencyLimiter.getQueueDepth(host) : 0;
     }
 
     private ActionHelper getActionHelper(Class actionClass) {
         ActionHelper helper = actionHelperCache.get(actionClass);
         if (helper == null && actionHelperFactory != null) {
-            synchronized (actionHelperFactory) {
-                helper = actionHelperFactory.make(actionClass);
-                actionHelperCache.put(actionClass, helper);
+            // generated factory is stateless, so concurrent first calls may race safely, first helper wins
+            helper = actionHelperFactory.make(actionClass);
+            if (helper != null) {
+                ActionHelper cached = actionHelperCache.putIfAbsent(actionClass, helper);
+                if (cached != null) helper = cached;
             }
         }
         return helper;
@@ -207,6 +482,311 @@ final public class HttpActionService extends ActionService {
         }
     }
 
+    /**
+     * Builder for {@linkplain HttpActionService} with optional features
+     */
+    public static final class Builder {
+
+        private final String baseUrl;
+        private final HttpClient client;
+        private final Converter converter;
+        private Executor clientExecutor;
+        private Executor lazyConversionExecutor;
+        private ResponseCache responseCache;
+        private RevalidationCache revalidationCache;
+        private RequestJournal outboxJournal;
+        private OutboxListener outboxListener;
+        private boolean coalesceRequests;
+        private RetryPolicy retryPolicy;
+        private long hedgeDelayMillis = -1;
+        private int maxRunningRequests;
+        private int maxQueueSize;
+        private final Map<String, RateLimitPolicy> rateLimits = new LinkedHashMap<String, RateLimitPolicy>();
+        private CircuitBreakerPolicy circuitBreakerPolicy;
+        private ConcurrencyLimitPolicy concurrencyLimitPolicy;
+        private TracingPolicy tracingPolicy;
+        private final List<HttpActionListener> listeners = new ArrayList<HttpActionListener>();
+        private final List<HttpInterceptor> interceptors = new ArrayList<HttpInterceptor>();
+        private boolean adaptiveHedging;
+        private String batchUrl;
+        private long batchWindowMillis;
+        private int maxBatchSize;
+
+        public Builder(String baseUrl, HttpClient client, Converter converter) {
+            this.baseUrl = baseUrl;
+            this.client = client;
+            this.converter = converter;
+        }
+
+        /**
+         * Executor to run blocking {@linkplain HttpClient} on, instead of the thread which sends action.
+         * Response is processed on the executor thread as well, so it's used as {@linkplain AsyncHttpClient},
+         * e.g. waiting for retry or rate limit doesn't block any thread.
+         * <p>
+         * On JDK 21+ {@code Executors.newVirtualThreadPerTaskExecutor()} runs every request on its own virtual thread:
+         * service doesn't block while holding a monitor, so carrier threads are not pinned.
+         * It's ignored if client is {@linkplain AsyncHttpClient} already.
+         */
+        public Builder clientExecutor(Executor clientExecutor) {
+            this.clientExecutor = clientExecutor;
+            return this;
+        }
+
+        /**
+         * Executor to convert {@linkplain LazyResponse} fields on once action succeeds, ahead of their access.
+         * Without it they are converted on the first access.
+         */
+        public Builder lazyConversionExecutor(Executor lazyConversionExecutor) {
+            if (lazyConversionExecutor == null) {
+                throw new IllegalArgumentException("lazyConversionExecutor == null");
+            }
+            this.lazyConversionExecutor = lazyConversionExecutor;
+            return this;
+        }
+
+        /**
+         * Cache for responses of {@code GET} requests. Response hits are processed without calling {@linkplain HttpClient}
+         */
+        public Builder responseCache(ResponseCache responseCache) {
+            this.responseCache = responseCache;
+            return this;
+        }
+
+        /**
+         * Store of responses with {@code ETag} or {@code Last-Modified}: {@code GET} request with stored response is sent
+         * with {@code If-None-Match}/{@code If-Modified-Since} and {@code 304} is processed as the stored response
+         */
+        public Builder revalidationCache(RevalidationCache revalidationCache) {
+            this.revalidationCache = revalidationCache;
+            return this;
+        }
+
+        /**
+         * Journal to store requests of {@linkplain io.techery.janet.http.annotations.Outbox @Outbox} actions
+         * which fail with I/O error, they are replayed in order on the next response or {@linkplain #replayOutbox()}.
+         * Requires {@linkplain AsyncHttpClient} or {@linkplain #clientExecutor}.
+         */
+        public Builder outbox(RequestJournal journal) {
+            return outbox(journal, new OutboxListener() {});
+        }
+
+        /**
+         * @param listener listener of replayed requests, as their actions could be gone
+         * @see #outbox(RequestJournal)
+         */
+        public Builder outbox(RequestJournal journal, OutboxListener listener) {
+            if (journal == null) {
+                throw new IllegalArgumentException("journal == null");
+            }
+            if (listener == null) {
+                throw new IllegalArgumentException("listener == null");
+            }
+            this.outboxJournal = journal;
+            this.outboxListener = listener;
+            return this;
+        }
+
+        /**
+         * Identical concurrent {@code GET} requests (same url and headers) share single {@linkplain HttpClient} call,
+         * its buffered response is delivered to every waiting action.
+         * Canceled action stops waiting, shared call is canceled with the last one.
+         */
+        public Builder coalesceRequests(boolean coalesceRequests) {
+            this.coalesceRequests = coalesceRequests;
+            return this;
+        }
+
+        /**
+         * Requests to the host of {@code batchUrl} are collected during {@code windowMillis} (or until {@code maxBatchSize}
+         * is reached) and sent with single {@code POST} to {@code batchUrl} as {@code multipart/mixed} body
+         * of {@code application/http} parts. Batched response is split back to responses of every action.
+         * Actions with streamed response, deadline, file body or body over 64 KB are sent as is.
+         * <p>
+         * Requires {@linkplain AsyncHttpClient} or {@linkplain #clientExecutor}, as batch is sent from shared timer thread.
+         */
+        public Builder batchRequests(String batchUrl, long windowMillis, int maxBatchSize) {
+            if (batchUrl == null) {
+                throw new IllegalArgumentException("batchUrl == null");
+            }
+            this.batchUrl = batchUrl;
+            this.batchWindowMillis = windowMillis;
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * Policy to retry failed requests of actions without {@linkplain Retry @Retry}.
+         * Request body which can't be written twice is read into memory before the first attempt.
+         * <p>
+         * Blocking client waits for the next attempt right on the thread which sends action.
+         */
+        public Builder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * If there is no response to {@code GET} or {@code HEAD} request within {@code delayMillis},
+         * identical request is sent and the first response wins, another request is canceled.
+         * <p>
+         * Requires {@linkplain AsyncHttpClient} or {@linkplain #clientExecutor(Executor)}.
+         *
+         * @param adaptive if {@code true}, delay is 95th percentile of recent latencies of request host,
+         *                 {@code delayMillis} is used until there are enough of them
+         */
+        public Builder hedgeRequests(long delayMillis, boolean adaptive) {
+            if (delayMillis < 0) {
+                throw new IllegalArgumentException("delayMillis < 0");
+            }
+            this.hedgeDelayMillis = delayMillis;
+            this.adaptiveHedging = adaptive;
+            return this;
+        }
+
+        /**
+         * Per-host circuit breaker. While it's open, actions fail with {@linkplain CircuitBreakerOpenException}
+         * without calling {@linkplain HttpClient}.
+         */
+        public Builder circuitBreaker(CircuitBreakerPolicy circuitBreakerPolicy) {
+            this.circuitBreakerPolicy = circuitBreakerPolicy;
+            return this;
+        }
+
+        /**
+         * Adaptive per-host limit of in-flight requests. Requests above the limit wait in queue,
+         * actions fail with {@linkplain ConcurrencyLimitException} if it's full.
+         *
+         * @see HttpActionService#getConcurrencyLimit(String)
+         * @see HttpActionService#getQueueDepth(String)
+         */
+        public Builder concurrencyLimit(ConcurrencyLimitPolicy concurrencyLimitPolicy) {
+            this.concurrencyLimitPolicy = concurrencyLimitPolicy;
+            return this;
+        }
+
+        /**
+         * Limits number of requests in flight, the rest wait in queue and are sent in order of
+         * {@linkplain HttpAction#priority() priority}. If the queue is full, action of the lowest priority fails
+         * with {@linkplain LoadSheddingException}.
+         *
+         * @see PrioritizedAction
+         */
+        public Builder priorityScheduling(int maxRunningRequests, int maxQueueSize) {
+            if (maxRunningRequests < 1) {
+                throw new IllegalArgumentException("maxRunningRequests < 1");
+            }
+            if (maxQueueSize < 0) {
+                throw new IllegalArgumentException("maxQueueSize < 0");
+            }
+            this.maxRunningRequests = maxRunningRequests;
+            this.maxQueueSize = maxQueueSize;
+            return this;
+        }
+
+        /**
+         * Limits rate of requests of actions with given {@linkplain HttpAction#value() path template},
+         * e.g. {@code "/users/{id}"}, unless action is annotated with {@linkplain RateLimit @RateLimit}.
+         * Bucket is paused by {@code Retry-After} of {@code 429} response.
+         * <p>
+         * Blocking client waits for permit right on the thread which sends action.
+         */
+        public Builder rateLimit(String pathTemplate, RateLimitPolicy policy) {
+            if (pathTemplate == null) {
+                throw new IllegalArgumentException("pathTemplate == null");
+            }
+            if (policy == null) {
+                throw new IllegalArgumentException("policy == null");
+            }
+            this.rateLimits.put(pathTemplate, policy);
+            return this;
+        }
+
+        /**
+         * Adds listener of action processing phases, e.g. to measure latency of every phase
+         */
+        public Builder listener(HttpActionListener listener) {
+            if (listener == null) {
+                throw new IllegalArgumentException("listener == null");
+            }
+            this.listeners.add(listener);
+            return this;
+        }
+
+        /**
+         * Adds interceptor of requests sent to {@linkplain HttpClient}, e.g. to add auth header or to answer with stub response.
+         * Interceptors are run in order they are added, the first one sees request first.
+         * They see every request which reaches client: every attempt of retried request, both hedged requests
+         * and batch request instead of batched ones.
+         */
+        public Builder interceptor(HttpInterceptor interceptor) {
+            if (interceptor == null) {
+                throw new IllegalArgumentException("interceptor == null");
+            }
+            this.interceptors.add(interceptor);
+            return this;
+        }
+
+        /**
+         * Records latency histograms, status and byte counts of actions and hosts to given registry
+         */
+        public Builder metrics(HttpMetrics metrics) {
+            return listener(metrics);
+        }
+
+        /**
+         * Propagates W3C trace context ({@code traceparent} and {@code tracestate} headers) with requests
+         * and reports client spans of sampled actions.
+         *
+         * @see TracedAction
+         */
+        public Builder tracing(TracingPolicy tracingPolicy) {
+            this.tracingPolicy = tracingPolicy;
+            return this;
+        }
+
+        public HttpActionService build() {
+            return new HttpActionService(this);
+        }
+    }
+
+    /**
+     * Options of action class declared with annotations
+     */
+    private static final class ActionOptions {
+
+        /** policy of {@linkplain Retry @Retry}, service-level one or {@code null} if action is not retried */
+        private final RetryPolicy retryPolicy;
+        private final HttpAction.Priority priority;
+        /** bucket of {@linkplain RateLimit @RateLimit}, service-level one of path template or {@code null} */
+        private final TokenBucket tokenBucket;
+        /** timeout of {@linkplain Timeout @Timeout} or 0 */
+        private final long timeoutMillis;
+        /** if request of {@linkplain io.techery.janet.http.annotations.Outbox @Outbox} action can be stored to outbox */
+        private final boolean queueable;
+
+        private ActionOptions(Class actionClass, RetryPolicy defaultRetryPolicy, Map<String, TokenBucket> rateLimits) {
+            Retry retry = (Retry) actionClass.getAnnotation(Retry.class);
+            RetryPolicy retryPolicy = retry != null ? RetryPolicy.from(retry) : defaultRetryPolicy;
+            this.retryPolicy = retryPolicy != null && retryPolicy.maxAttempts() > 1 ? retryPolicy : null;
+            HttpAction httpAction = (HttpAction) actionClass.getAnnotation(HttpAction.class);
+            this.priority = httpAction != null ? httpAction.priority() : HttpAction.Priority.NORMAL;
+            RateLimit rateLimit = (RateLimit) actionClass.getAnnotation(RateLimit.class);
+            if (rateLimit != null) {
+                this.tokenBucket = new TokenBucket(RateLimitPolicy.from(rateLimit));
+            } else {
+                this.tokenBucket = httpAction != null ? rateLimits.get(httpAction.value()) : null;
+            }
+            Timeout timeout = (Timeout) actionClass.getAnnotation(Timeout.class);
+            this.timeoutMillis = timeout != null ? timeout.value() : 0;
+            this.queueable = httpAction != null && isQueueable(httpAction.method())
+                    && actionClass.isAnnotationPresent(io.techery.janet.http.annotations.Outbox.class);
+        }
+
+        private static boolean isQueueable(HttpAction.Method method) {
+            return method == HttpAction.Method.POST || method == HttpAction.Method.PUT || method == HttpAction.Method.PATCH;
+        }
+    }
+
     public interface ActionHelperFactory {
         ActionHelper make(Class actionClass);
     }
@@ -215,14 +795,280 @@ final public class HttpActionService extends ActionService {
         RequestBuilder fillRequest(RequestBuilder requestBuilder, T action) throws ConverterException;
 
         T onResponse(T action, Response response, Converter converter) throws ConverterException;
+
+        /**
+         * @return {@code true} if response body is read while it's downloaded by {@linkplain ResponseBodyConsumer}
+         * or {@linkplain java.io.File} field of action, so it's neither buffered nor shared with other actions
+         */
+        boolean isStreamingResponse();
+
+        /**
+         * Starts conversion of {@linkplain LazyResponse} fields of action on executor
+         */
+        void convertLazyResponses(T action, Executor executor);
     }
 
-    private static abstract class ActionRequestCallback<A> implements HttpClient.RequestCallback {
+    /**
+     * Tracks single action execution: reports request progress, retries failed request and processes the outcome of request.
+     */
+    private final class ActionCall<A> implements HttpClient.DownloadProgressCallback, RequestBatcher.BatchableCallback,
+            AsyncHttpClient.ResponseCallback, PriorityScheduler.Task {
+
+        private final ActionHolder<A> holder;
+        private final CallState state;
+        private final ActionHelper<A> helper;
+        private final Request request;
+        /** response of {@linkplain RevalidationCache} request is conditional with or {@code null} */
+        private final Response storedResponse;
+        private final RetryPolicy retryPolicy;
+        private final HttpAction.Priority priority;
+        private final TokenBucket tokenBucket;
+        private final boolean streamingResponse;
+        /** if request can be stored to outbox, it's never set without outbox */
+        private final boolean queueable;
+        private final RequestTracer.ActiveSpan span;
+        private final long startNanos;
+        private long timeoutMillis;
+        private volatile ScheduledFuture deadlineTimer;
+        private volatile long executeStartNanos;
+        private volatile int attempt = 1;
+        private int lastProgress;
+        private int lastDownloadProgress;
+
+        private ActionCall(ActionHolder<A> holder, CallState state, ActionHelper<A> helper, Request request, Response storedResponse,
+                ActionOptions options, HttpAction.Priority priority, RequestTracer.ActiveSpan span, long startNanos) {
+            this.holder = holder;
+            this.state = state;
+            this.helper = helper;
+            this.request = request;
+            this.storedResponse = storedResponse;
+            this.retryPolicy = options.retryPolicy;
+            this.tokenBucket = options.tokenBucket;
+            this.streamingResponse = helper.isStreamingResponse();
+            this.queueable = outbox != null && options.queueable;
+            this.priority = priority;
+            this.span = span;
+            this.startNanos = startNanos;
+        }
 
-        protected final ActionHolder<A> holder;
+        @Override public void run() {
+            execute(request, this);
+        }
 
-        private ActionRequestCallback(ActionHolder<A> holder) {this.holder = holder;}
+        @Override public void reject(Throwable error) {
+            onFailure(error);
+        }
 
+        @Override public boolean isBatchable() {
+            return !streamingResponse;
+        }
+
+        @Override public void onProgress(int progress) {
+            if (progress > lastProgress + PROGRESS_THRESHOLD) {
+                callback.onProgress(holder, progress);
+                if (listener != null) listener.onUploadProgress(holder.action().getClass(), request, progress);
+                lastProgress = progress;
+            }
+        }
+
+        @Override public void onDownloadProgress(int progress) {
+            if (progress > lastDownloadProgress + PROGRESS_THRESHOLD) {
+                A action = holder.action();
+                if (action instanceof DownloadProgressAction) ((DownloadProgressAction) action).onDownloadProgress(progress);
+                if (listener != null) listener.onDownloadProgress(action.getClass(), request, progress);
+                lastDownloadProgress = progress;
+            }
+        }
+
+        @Override public void onResponse(Response response) {
+            state.transition(CallState.SENDING, CallState.RECEIVING);
+            onExecuted(response, null);
+            // server is reachable again
+            if (outbox != null) outbox.replay();
+            PriorityScheduler.Task next = scheduler != null ? scheduler.finish(request) : null;
+            try {
+                processResponse(response);
+            } finally {
+                if (next != null) scheduler.execute(next);
+            }
+        }
+
+        @Override public void onFailure(Throwable error) {
+            state.transition(CallState.SENDING, CallState.RECEIVING);
+            onExecuted(null, error);
+            PriorityScheduler.Task next = scheduler != null ? scheduler.finish(request) : null;
+            try {
+                processFailure(error);
+            } finally {
+                if (next != null) scheduler.execute(next);
+            }
+        }
+
+        private void onExecuted(Response response, Throwable error) {
+            if (listener == null || executeStartNanos == 0) return; // e.g. request is rejected before execution
+            long requestBytes = request.getBody() != null ? request.getBody().length() : 0;
+            long responseBytes = response == null || response.getBody() == null ? 0 : response.getBody().length();
+            listener.onExecute(holder.action().getClass(), request, response, error,
+                    executeStartNanos, System.nanoTime(), requestBytes, responseBytes);
+            executeStartNanos = 0;
+        }
+
+        private void processResponse(Response response) {
+            if (tokenBucket != null && response.getStatus() == 429) {
+                long retryAfter = ResponseUtils.getRetryAfterMillis(response);
+                if (retryAfter > 0) tokenBucket.pause(retryAfter);
+            }
+            if (retryPolicy != null && retryPolicy.shouldRetry(request, attempt, response)
+                    && retry(retryPolicy.delayMillis(attempt, response), response)) {
+                return;
+            }
+            complete(response, true);
+        }
+
+        private void processFailure(Throwable error) {
+            if (state.isCanceled()) return;
+            if (retryPolicy != null && retryPolicy.shouldRetry(request, attempt, error)
+                    && retry(retryPolicy.delayMillis(attempt, null), null)) {
+                return;
+            }
+            if (queueable && error instanceof IOException && enqueueToOutbox(error)) return;
+            if (!state.finish()) return;
+            end(null, toServiceException(error, request, null), attempt);
+        }
+
+        /**
+         * Stores request to outbox and fails action with {@linkplain RequestQueuedException}
+         *
+         * @param error failure of request or {@code null} if it's not sent
+         * @return {@code false} if request can't be stored
+         */
+        private boolean enqueueToOutbox(Throwable error) {
+            long id = outbox.offer(request);
+            if (id == -1) return false;
+            if (state.finish()) {
+                end(null, new HttpServiceException(new RequestQueuedException(request, error)), attempt);
+            } else {
+                // action is canceled meanwhile
+                outbox.remove(id);
+            }
+            return true;
+        }
+
+        /**
+         * @return {@code false} if waiting for the next attempt is interrupted, so failure must be processed
+         */
+        private boolean retry(long delayMillis, final Response failedResponse) {
+            if (!blockingClient) {
+                // don't hold connection while waiting
+                ResponseUtils.closeQuietly(failedResponse);
+            }
+            return runDelayed(delayMillis, new Runnable() {
+                @Override public void run() {
+                    ResponseUtils.closeQuietly(failedResponse);
+                    attempt++;
+                    if (state.reset()) dispatch(request, ActionCall.this);
+                }
+            });
+        }
+
+        /**
+         * Runs task after delay: blocking client waits right on this thread, otherwise task is run on shared scheduler.
+         *
+         * @return {@code false} if waiting is interrupted and task is not run
+         */
+        private boolean runDelayed(long delayMillis, Runnable task) {
+            if (!blockingClient) {
+                DelayScheduler.INSTANCE.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+                return true;
+            }
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            task.run();
+            return true;
+        }
+
+        private boolean isCanceled() {
+            return state.isCanceled();
+        }
+
+        /**
+         * Fails action with {@linkplain DeadlineExceededException} once its deadline comes, unless it's finished before.
+         * Response being converted at the moment is dropped.
+         */
+        private void startDeadline(long timeoutMillis, long deadlineNanos) {
+            this.timeoutMillis = timeoutMillis;
+            deadlineTimer = DelayScheduler.INSTANCE.schedule(new Runnable() {
+                @Override public void run() {
+                    expire();
+                }
+            }, deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        private void expire() {
+            int previousState = state.cancel();
+            if (previousState == CallState.CANCELED || previousState == CallState.FINISHED) return;
+            abort(request, previousState);
+            end(null, new HttpServiceException(new DeadlineExceededException(request, timeoutMillis)), attempt);
+        }
+
+        void complete(Response response, boolean fromNetwork) {
+            A action = holder.action();
+            HttpServiceException error = null;
+            try {
+                if (state.isCanceled()) return;
+                if (fromNetwork && !streamingResponse) {
+                    if (revalidationCache != null) response = revalidationCache.put(request, response, storedResponse);
+                    if (responseCache != null) response = responseCache.put(request, response);
+                }
+                long processStartNanos = nanoTime();
+                if (listener != null) listener.onProcessResponseStart(action.getClass(), response);
+                // streamed body fails on the next read once action is canceled
+                action = helper.onResponse(action, streamingResponse ? CancelableBody.wrap(response, state) : response, converter);
+                if (listener != null) {
+                    listener.onProcessResponse(action.getClass(), response, processStartNanos, System.nanoTime());
+                }
+                if (!response.isSuccessful()) {
+                    throw HttpException.forResponse(request, response);
+                }
+            } catch (Throwable e) {
+                error = toServiceException(e, request, response);
+            }
+            if (!state.finish()) return;
+            if (error == null && lazyConversionExecutor != null) convertLazyResponses(action);
+            end(response, error, fromNetwork ? attempt : 0);
+        }
+
+        private void convertLazyResponses(A action) {
+            try {
+                helper.convertLazyResponses(action, lazyConversionExecutor);
+            } catch (Throwable ignored) {} // it's converted on access then
+        }
+
+        /**
+         * Delivers result of action
+         *
+         * @param response the last response or {@code null}
+         * @param attempts number of request attempts
+         */
+        private void end(Response response, HttpServiceException error, int attempts) {
+            runningActions.remove(holder.action(), state);
+            ScheduledFuture deadlineTimer = this.deadlineTimer;
+            if (deadlineTimer != null) deadlineTimer.cancel(false);
+            Class actionClass = holder.action().getClass();
+            if (listener != null) {
+                listener.onActionEnd(actionClass, request, response, error, startNanos, System.nanoTime());
+            }
+            if (span != null) tracer.finish(span, actionClass, request, response, error, attempts);
+            if (error != null) {
+                callback.onFail(holder, error);
+            } else {
+                callback.onSuccess(holder);
+            }
+        }
     }
 
 }
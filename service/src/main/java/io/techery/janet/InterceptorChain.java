@@ -0,0 +1,114 @@
+package io.techery.janet;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.techery.janet.http.AsyncHttpClient;
+import io.techery.janet.http.HttpInterceptor;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+
+/**
+ * Runs requests through {@linkplain HttpInterceptor interceptors} in order they are added before sending them to client.
+ * Interceptors are composed into array once, call walks it by index.
+ * <p>
+ * Request which reaches client could be rewritten, so it's tracked by origin one to be canceled with it.
+ * Request canceled before interceptors pass it to client fails with {@linkplain IOException}.
+ */
+final class InterceptorChain implements AsyncHttpClient {
+
+    private final AsyncHttpClient client;
+    private final HttpInterceptor[] interceptors;
+    private final ConcurrentMap<Request, Call> calls;
+
+    InterceptorChain(AsyncHttpClient client, List<HttpInterceptor> interceptors) {
+        this.client = client;
+        this.interceptors = interceptors.toArray(new HttpInterceptor[interceptors.size()]);
+        this.calls = new ConcurrentHashMap<Request, Call>();
+    }
+
+    @Override public Response execute(Request request, RequestCallback requestCallback) throws IOException {
+        return client.execute(request, requestCallback);
+    }
+
+    @Override public void enqueue(Request request, RequestCallback requestCallback, ResponseCallback responseCallback) {
+        Call call = new Call(request, requestCallback, responseCallback);
+        calls.put(request, call);
+        call.intercept(0, request, call);
+    }
+
+    @Override public void cancel(Request request) {
+        Call call = calls.remove(request);
+        if (call == null) {
+            client.cancel(request);
+            return;
+        }
+        call.canceled = true;
+        Request sentRequest = call.sentRequest;
+        if (sentRequest != null) client.cancel(sentRequest);
+    }
+
+    private final class Call implements ResponseCallback {
+
+        private final Request request;
+        private final RequestCallback requestCallback;
+        private final ResponseCallback responseCallback;
+        /** request passed to client by the last interceptor */
+        private volatile Request sentRequest;
+        private volatile boolean canceled;
+        private boolean finished;
+
+        private Call(Request request, RequestCallback requestCallback, ResponseCallback responseCallback) {
+            this.request = request;
+            this.requestCallback = requestCallback;
+            this.responseCallback = responseCallback;
+        }
+
+        private void intercept(final int index, Request request, ResponseCallback callback) {
+            if (index == interceptors.length) {
+                send(request, callback);
+                return;
+            }
+            try {
+                interceptors[index].intercept(request, new HttpInterceptor.Chain() {
+                    @Override public void proceed(Request request, ResponseCallback callback) {
+                        intercept(index + 1, request, callback);
+                    }
+                }, callback);
+            } catch (Throwable e) {
+                callback.onFailure(e);
+            }
+        }
+
+        private void send(Request request, ResponseCallback callback) {
+            if (canceled) {
+                // wrapping clients release their state of request only on its callback
+                onFailure(new IOException("Canceled"));
+                return;
+            }
+            sentRequest = request;
+            client.enqueue(request, requestCallback, callback);
+            // cancel could come before sent request is set and miss it
+            if (canceled) client.cancel(request);
+        }
+
+        @Override public void onResponse(Response response) {
+            if (finish()) responseCallback.onResponse(response);
+        }
+
+        @Override public void onFailure(Throwable error) {
+            if (finish()) responseCallback.onFailure(error);
+        }
+
+        private boolean finish() {
+            synchronized (this) {
+                if (finished) return false;
+                finished = true;
+            }
+            calls.remove(request, this);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package io.techery.janet;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import io.techery.janet.http.annotations.HttpAction;
+import io.techery.janet.http.exception.LoadSheddingException;
+import io.techery.janet.http.model.Request;
+
+/**
+ * Limits number of requests in flight and dispatches queued ones by priority, in order of submission within the same priority.
+ * If the queue is full, request of the lowest priority is shed, so it's either the last queued one or submitted one.
+ */
+final class PriorityScheduler {
+
+    interface Task {
+        void run();
+
+        void reject(Throwable error);
+    }
+
+    private final int maxRunningRequests;
+    private final int maxQueueSize;
+    private final TreeSet<Entry> queue;
+    private final Map<Request, Entry> queuedRequests;
+    private final Set<Request> runningRequests;
+    /** tasks left to run by the outermost {@linkplain #execute} of thread */
+    private final ThreadLocal<ArrayDeque<Task>> pendingTasks;
+    private long sequence;
+
+    PriorityScheduler(int maxRunningRequests, int maxQueueSize) {
+        if (maxRunningRequests < 1) {
+            throw new IllegalArgumentException("maxRunningRequests < 1");
+        }
+        if (maxQueueSize < 0) {
+            throw new IllegalArgumentException("maxQueueSize < 0");
+        }
+        this.maxRunningRequests = maxRunningRequests;
+        this.maxQueueSize = maxQueueSize;
+        this.queue = new TreeSet<Entry>(new Comparator<Entry>() {
+            @Override public int compare(Entry left, Entry right) {
+                if (left.priority != right.priority) return right.priority.compareTo(left.priority);
+                return left.sequence < right.sequence ? -1 : (left.sequence == right.sequence ? 0 : 1);
+            }
+        });
+        this.queuedRequests = new HashMap<Request, Entry>();
+        this.runningRequests = new HashSet<Request>();
+        this.pendingTasks = new ThreadLocal<ArrayDeque<Task>>();
+    }
+
+    void submit(Request request, HttpAction.Priority priority, Task task) {
+        Entry shed = null;
+        boolean run = false;
+        synchronized (this) {
+            Entry entry = new Entry(request, priority, task, sequence++);
+            if (runningRequests.size() < maxRunningRequests) {
+                runningRequests.add(request);
+                run = true;
+            } else if (queue.size() < maxQueueSize) {
+                enqueue(entry);
+            } else if (!queue.isEmpty() && queue.last().priority.compareTo(priority) < 0) {
+                shed = queue.pollLast();
+                queuedRequests.remove(shed.request);
+                enqueue(entry);
+            } else {
+                shed = entry;
+            }
+        }
+        if (run) execute(task);
+        if (shed != null) shed.task.reject(new LoadSheddingException(shed.request));
+    }
+
+    /**
+     * Frees place of running request for the next queued one
+     *
+     * @return task of the next request which must be run by caller or {@code null}
+     */
+    synchronized Task finish(Request request) {
+        if (!runningRequests.remove(request)) return null;
+        Entry next = queue.pollFirst();
+        if (next == null) return null;
+        queuedRequests.remove(next.request);
+        runningRequests.add(next.request);
+        return next.task;
+    }
+
+    /**
+     * Runs task of request which got place to run. Blocking client completes request right in the task,
+     * so task run from completion of another one is deferred till the outermost one returns:
+     * queued requests are run one after another instead of nesting on the stack of the thread.
+     */
+    void execute(Task task) {
+        ArrayDeque<Task> pending = pendingTasks.get();
+        if (pending != null) {
+            pending.add(task);
+            return;
+        }
+        pending = new ArrayDeque<Task>();
+        pendingTasks.set(pending);
+        RuntimeException error = null;
+        try {
+            for (; task != null; task = pending.poll()) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    // the rest of tasks own places to run, so they must be run anyway
+                    if (error == null) error = e;
+                }
+            }
+        } finally {
+            pendingTasks.remove();
+        }
+        if (error != null) throw error;
+    }
+
+    /**
+     * @return {@code true} if request was waiting in the queue
+     */
+    synchronized boolean cancel(Request request) {
+        Entry entry = queuedRequests.remove(request);
+        return entry != null && queue.remove(entry);
+    }
+
+    synchronized int getQueueSize() {
+        return queue.size();
+    }
+
+    private void enqueue(Entry entry) {
+        queue.add(entry);
+        queuedRequests.put(entry.request, entry);
+    }
+
+    private static final class Entry {
+        private final Request request;
+        private final HttpAction.Priority priority;
+        private final Task task;
+        private final long sequence;
+
+        private Entry(Request request, HttpAction.Priority priority, Task task, long sequence) {
+            this.request = request;
+            this.priority = priority;
+            this.task = task;
+            this.sequence = sequence;
+        }
+    }
+}
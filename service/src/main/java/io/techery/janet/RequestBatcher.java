@@ -0,0 +1,241 @@
+package io.techery.janet;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import io.techery.janet.body.ActionBody;
+import io.techery.janet.body.FileBody;
+import io.techery.janet.http.AsyncHttpClient;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+
+/**
+ * Collects requests to the host of batch endpoint during a short window (or until max count is reached)
+ * and sends them as one {@code multipart/mixed} request, see {@linkplain BatchCodec}.
+ * <p>
+ * Batch of single request is sent as is. Canceled request is removed from pending batch,
+ * or stops waiting for the sent one, which is canceled when no requests are left in it.
+ * <p>
+ * Only requests with {@linkplain BatchableCallback batchable} callback are batched, as streamed responses can't be
+ * split from batch. Requests with deadline, file body or body over {@linkplain #MAX_BODY_LENGTH} are sent as is too:
+ * batch request has no deadline and its body is kept in memory. Progress of batch request is reported to all of its requests.
+ */
+final class RequestBatcher implements AsyncHttpClient {
+
+    static final long MAX_BODY_LENGTH = 64 * 1024;
+
+    private final AsyncHttpClient client;
+    private final String batchUrl;
+    private final String batchAuthority;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final ConcurrentMap<Request, Item> items;
+    private Batch pendingBatch;
+
+    RequestBatcher(AsyncHttpClient client, String batchUrl, long windowMillis, int maxBatchSize) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("windowMillis < 0");
+        }
+        if (maxBatchSize < 2) {
+            throw new IllegalArgumentException("maxBatchSize < 2");
+        }
+        this.client = client;
+        this.batchUrl = batchUrl;
+        this.batchAuthority = authority(batchUrl);
+        if (batchAuthority == null) {
+            throw new IllegalArgumentException("batchUrl is not valid");
+        }
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.items = new ConcurrentHashMap<Request, Item>();
+    }
+
+    @Override public Response execute(Request request, RequestCallback requestCallback) throws IOException {
+        return client.execute(request, requestCallback);
+    }
+
+    @Override public void enqueue(Request request, RequestCallback requestCallback, ResponseCallback responseCallback) {
+        if (!isBatchable(request, requestCallback)) {
+            client.enqueue(request, requestCallback, responseCallback);
+            return;
+        }
+        Item item = new Item(request, requestCallback, responseCallback);
+        items.put(request, item);
+        Batch batchToSend = null;
+        Batch batchToSchedule = null;
+        synchronized (this) {
+            if (pendingBatch == null) {
+                pendingBatch = new Batch();
+                batchToSchedule = pendingBatch;
+            }
+            item.batch = pendingBatch;
+            pendingBatch.items.add(item);
+            if (pendingBatch.items.size() >= maxBatchSize) {
+                batchToSend = pendingBatch;
+                pendingBatch = null;
+            }
+        }
+        if (batchToSend != null) {
+            send(batchToSend);
+        } else if (batchToSchedule != null) {
+            final Batch batch = batchToSchedule;
+            DelayScheduler.INSTANCE.schedule(new Runnable() {
+                @Override public void run() {
+                    synchronized (RequestBatcher.this) {
+                        if (pendingBatch != batch) return;
+                        pendingBatch = null;
+                    }
+                    send(batch);
+                }
+            }, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override public void cancel(Request request) {
+        Item item = items.remove(request);
+        if (item == null) {
+            client.cancel(request);
+            return;
+        }
+        Batch batch = item.batch;
+        boolean cancelBatch;
+        synchronized (this) {
+            batch.items.remove(item);
+            cancelBatch = batch.request != null && batch.items.isEmpty();
+        }
+        if (cancelBatch) {
+            client.cancel(batch.request);
+        }
+    }
+
+    private void send(Batch batch) {
+        final List<Item> items;
+        synchronized (this) {
+            items = new ArrayList<Item>(batch.items);
+        }
+        if (items.isEmpty()) return;
+        if (items.size() == 1) {
+            Item item = items.get(0);
+            this.items.remove(item.request);
+            client.enqueue(item.request, item.requestCallback, item.responseCallback);
+            return;
+        }
+        final List<Request> requests = new ArrayList<Request>(items.size());
+        for (Item item : items) requests.add(item.request);
+        Request batchRequest;
+        try {
+            batchRequest = new Request("POST", batchUrl, null, BatchCodec.encode(requests));
+        } catch (Throwable e) {
+            deliverFailure(items, e);
+            return;
+        }
+        synchronized (this) {
+            if (batch.items.isEmpty()) return; // all are canceled
+            batch.request = batchRequest;
+        }
+        client.enqueue(batchRequest, new DownloadProgressCallback() {
+            @Override public void onProgress(int progress) {
+                for (Item item : items) {
+                    item.requestCallback.onProgress(progress);
+                }
+            }
+
+            @Override public void onDownloadProgress(int progress) {
+                for (Item item : items) {
+                    if (item.requestCallback instanceof DownloadProgressCallback) {
+                        ((DownloadProgressCallback) item.requestCallback).onDownloadProgress(progress);
+                    }
+                }
+            }
+        }, new ResponseCallback() {
+            @Override public void onResponse(Response response) {
+                Response[] responses;
+                try {
+                    if (!response.isSuccessful()) {
+                        throw new IOException("Batch request failed with status=" + response.getStatus() + ", with reason=" + response.getReason());
+                    }
+                    responses = BatchCodec.decode(response, requests);
+                } catch (Throwable e) {
+                    onFailure(e);
+                    return;
+                }
+                for (int i = 0; i < items.size(); i++) {
+                    Item item = items.get(i);
+                    RequestBatcher.this.items.remove(item.request);
+                    if (responses[i] != null) {
+                        item.responseCallback.onResponse(responses[i]);
+                    } else {
+                        item.responseCallback.onFailure(new IOException("There is no response for request in batch"));
+                    }
+                }
+            }
+
+            @Override public void onFailure(Throwable error) {
+                deliverFailure(items, error);
+            }
+        });
+    }
+
+    private void deliverFailure(List<Item> items, Throwable error) {
+        for (Item item : items) {
+            this.items.remove(item.request);
+            item.responseCallback.onFailure(error);
+        }
+    }
+
+    private boolean isBatchable(Request request, RequestCallback requestCallback) {
+        if (!(requestCallback instanceof BatchableCallback) || !((BatchableCallback) requestCallback).isBatchable()) {
+            return false;
+        }
+        if (request.getDeadlineNanos() != 0) return false;
+        ActionBody body = request.getBody();
+        if (body != null && (body instanceof FileBody || body.length() < 0 || body.length() > MAX_BODY_LENGTH)) {
+            return false;
+        }
+        return batchAuthority.equals(authority(request.getUrl()));
+    }
+
+    private static String authority(String url) {
+        try {
+            URL parsed = new URL(url);
+            return parsed.getProtocol() + "://" + parsed.getAuthority();
+        } catch (MalformedURLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Callback of request which can be batched
+     */
+    interface BatchableCallback extends RequestCallback {
+
+        /**
+         * @return {@code false} if response body is streamed while it's downloaded, so it can't be split from batch
+         */
+        boolean isBatchable();
+    }
+
+    private static final class Batch {
+        private final List<Item> items = new ArrayList<Item>();
+        private Request request;
+    }
+
+    private static final class Item {
+        private final Request request;
+        private final RequestCallback requestCallback;
+        private final ResponseCallback responseCallback;
+        private Batch batch;
+
+        private Item(Request request, RequestCallback requestCallback, ResponseCallback responseCallback) {
+            this.request = request;
+            this.requestCallback = requestCallback;
+            this.responseCallback = responseCallback;
+        }
+    }
+}
@@ -32,10 +32,15 @@ public final class RequestBuilder {
     private String contentTypeHeader;
     private HttpAction.Method requestMethod = HttpAction.Method.GET;
     private String ref;
+    private final long deadlineNanos;
 
-    RequestBuilder(String url, Converter converter) {
+    /**
+     * @param deadlineNanos deadline of request, see {@linkplain Request#getDeadlineNanos()}
+     */
+    RequestBuilder(String url, Converter converter, long deadlineNanos) {
         this.url = url;
         this.converter = converter;
+        this.deadlineNanos = deadlineNanos;
         this.multipartBody = null;
         this.formBody = null;
     }
@@ -263,7 +268,7 @@ public final class RequestBuilder {
                 }
             }
         }
-        return new Request(requestMethod.name(), url.toString(), headers, body);
+        return new Request(requestMethod.name(), url.toString(), headers, body, deadlineNanos);
     }
 
 }
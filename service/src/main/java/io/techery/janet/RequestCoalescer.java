@@ -0,0 +1,195 @@
+package io.techery.janet;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.techery.janet.http.AsyncHttpClient;
+import io.techery.janet.http.HttpClient;
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+import io.techery.janet.http.utils.ResponseUtils;
+
+/**
+ * Shares single client call between identical concurrent {@code GET} requests.
+ * Every request waits for the shared call under it's own identity, so it could stop waiting on cancellation
+ * while the call goes on for others.
+ */
+final class RequestCoalescer {
+
+    private final AsyncHttpClient client;
+    private final ConcurrentMap<String, Flight> flights;
+    private final ConcurrentMap<Request, Flight> waitingRequests;
+
+    RequestCoalescer(AsyncHttpClient client) {
+        this.client = client;
+        this.flights = new ConcurrentHashMap<String, Flight>();
+        this.waitingRequests = new ConcurrentHashMap<Request, Flight>();
+    }
+
+    static boolean isCoalescable(Request request) {
+        return "GET".equals(request.getMethod());
+    }
+
+    void execute(Request request, HttpClient.RequestCallback requestCallback, AsyncHttpClient.ResponseCallback responseCallback) {
+        String key = createKey(request);
+        Waiter waiter = new Waiter(request, requestCallback, responseCallback);
+        while (true) {
+            Flight flight = flights.get(key);
+            if (flight == null) {
+                Flight newFlight = new Flight(key, request);
+                newFlight.join(waiter);
+                waitingRequests.put(request, newFlight);
+                flight = flights.putIfAbsent(key, newFlight);
+                if (flight == null) {
+                    client.enqueue(newFlight.request, newFlight, newFlight);
+                    return;
+                }
+            }
+            waitingRequests.put(request, flight);
+            if (flight.join(waiter)) {
+                return;
+            }
+            // flight is already finished
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * @return {@code true} if request was waiting for shared call
+     */
+    boolean cancel(Request request) {
+        Flight flight = waitingRequests.remove(request);
+        if (flight == null) return false;
+        if (flight.leave(request)) {
+            flights.remove(flight.key, flight);
+            client.cancel(flight.request);
+        }
+        return true;
+    }
+
+    private static String createKey(Request request) {
+        StringBuilder key = new StringBuilder(request.getMethod()).append(' ').append(request.getUrl());
+        for (Header header : request.getHeaders()) {
+            key.append('\n').append(header.getName()).append(':').append(header.getValue());
+        }
+        return key.toString();
+    }
+
+    private final class Flight implements HttpClient.DownloadProgressCallback, RequestBatcher.BatchableCallback,
+            AsyncHttpClient.ResponseCallback {
+
+        private final String key;
+        private final Request request;
+        private final List<Waiter> waiters;
+        private boolean finished;
+
+        private Flight(String key, Request origin) {
+            this.key = key;
+            // own instance to not to be canceled with origin action,
+            // it's shared by actions of different deadlines, so each of them is left to expire on its own
+            this.request = new Request(origin.getMethod(), origin.getUrl(), origin.getHeaders(), origin.getBody());
+            this.waiters = new ArrayList<Waiter>(2);
+        }
+
+        private synchronized boolean join(Waiter waiter) {
+            if (finished) return false;
+            waiters.add(waiter);
+            return true;
+        }
+
+        /**
+         * @return {@code true} if it was the last waiter and call should be canceled
+         */
+        private synchronized boolean leave(Request request) {
+            for (Iterator<Waiter> iterator = waiters.iterator(); iterator.hasNext(); ) {
+                if (iterator.next().request == request) {
+                    iterator.remove();
+                    break;
+                }
+            }
+            if (waiters.isEmpty() && !finished) {
+                finished = true;
+                return true;
+            }
+            return false;
+        }
+
+        private List<Waiter> finish() {
+            flights.remove(key, this);
+            List<Waiter> waiters;
+            synchronized (this) {
+                finished = true;
+                waiters = new ArrayList<Waiter>(this.waiters);
+                this.waiters.clear();
+            }
+            for (Waiter waiter : waiters) {
+                waitingRequests.remove(waiter.request);
+            }
+            return waiters;
+        }
+
+        /**
+         * Streamed responses are never coalesced
+         */
+        @Override public boolean isBatchable() {
+            return true;
+        }
+
+        @Override public void onProgress(int progress) {
+            List<Waiter> waiters;
+            synchronized (this) {
+                waiters = new ArrayList<Waiter>(this.waiters);
+            }
+            for (Waiter waiter : waiters) {
+                waiter.requestCallback.onProgress(progress);
+            }
+        }
+
+        @Override public void onDownloadProgress(int progress) {
+            List<Waiter> waiters;
+            synchronized (this) {
+                waiters = new ArrayList<Waiter>(this.waiters);
+            }
+            for (Waiter waiter : waiters) {
+                if (waiter.requestCallback instanceof HttpClient.DownloadProgressCallback) {
+                    ((HttpClient.DownloadProgressCallback) waiter.requestCallback).onDownloadProgress(progress);
+                }
+            }
+        }
+
+        @Override public void onResponse(Response response) {
+            Response buffered;
+            try {
+                buffered = ResponseUtils.buffer(response);
+            } catch (Throwable e) {
+                onFailure(e);
+                return;
+            }
+            for (Waiter waiter : finish()) {
+                waiter.responseCallback.onResponse(buffered);
+            }
+        }
+
+        @Override public void onFailure(Throwable error) {
+            for (Waiter waiter : finish()) {
+                waiter.responseCallback.onFailure(error);
+            }
+        }
+    }
+
+    private static final class Waiter {
+        private final Request request;
+        private final HttpClient.RequestCallback requestCallback;
+        private final AsyncHttpClient.ResponseCallback responseCallback;
+
+        private Waiter(Request request, HttpClient.RequestCallback requestCallback, AsyncHttpClient.ResponseCallback responseCallback) {
+            this.request = request;
+            this.requestCallback = requestCallback;
+            this.responseCallback = responseCallback;
+        }
+    }
+}
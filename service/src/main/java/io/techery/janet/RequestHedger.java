@@ -0,0 +1,272 @@
+package io.techery.janet;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.techery.janet.http.AsyncHttpClient;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+import io.techery.janet.http.utils.RequestUtils;
+import io.techery.janet.http.utils.ResponseUtils;
+
+/**
+ * Sends second identical request if there is no response to {@code GET} or {@code HEAD} request within hedging delay.
+ * The first response wins, another request is canceled.
+ * <p>
+ * Delay is either fixed or adaptive, i.e. 95th percentile of recent response latencies of primary requests to the host.
+ * Both requests are own copies of origin one, so origin is canceled with {@linkplain #cancel(Request)}
+ * and stays sendable, e.g. for retry.
+ */
+final class RequestHedger implements AsyncHttpClient {
+
+    private static final double PERCENTILE = 0.95;
+    private static final int WINDOW_SIZE = 128;
+    private static final int MIN_SAMPLES = 20;
+
+    private final AsyncHttpClient client;
+    private final long delayMillis;
+    private final boolean adaptive;
+    private final ConcurrentMap<Request, HedgedCall> calls;
+    private final ConcurrentMap<String, LatencyWindow> latencies;
+
+    /**
+     * @param delayMillis fixed delay or initial one, while there are not enough latency samples of host
+     * @param adaptive    whether delay is derived from observed latency of host
+     */
+    RequestHedger(AsyncHttpClient client, long delayMillis, boolean adaptive) {
+        if (delayMillis < 0) {
+            throw new IllegalArgumentException("delayMillis < 0");
+        }
+        this.client = client;
+        this.delayMillis = delayMillis;
+        this.adaptive = adaptive;
+        this.calls = new ConcurrentHashMap<Request, HedgedCall>();
+        this.latencies = new ConcurrentHashMap<String, LatencyWindow>();
+    }
+
+    static boolean isHedgeable(Request request) {
+        return "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+    }
+
+    @Override public Response execute(Request request, RequestCallback requestCallback) throws IOException {
+        return client.execute(request, requestCallback);
+    }
+
+    @Override public void enqueue(Request request, RequestCallback requestCallback, ResponseCallback responseCallback) {
+        if (!isHedgeable(request)) {
+            client.enqueue(request, requestCallback, responseCallback);
+            return;
+        }
+        HedgedCall call = new HedgedCall(request, requestCallback, responseCallback);
+        calls.put(request, call);
+        call.start();
+    }
+
+    @Override public void cancel(Request request) {
+        HedgedCall call = calls.remove(request);
+        if (call != null) {
+            call.cancel();
+        } else {
+            client.cancel(request);
+        }
+    }
+
+    private long delayMillis(String host) {
+        if (!adaptive || host == null) return delayMillis;
+        LatencyWindow window = latencies.get(host);
+        long percentile = window != null ? window.percentile() : -1;
+        return percentile != -1 ? percentile : delayMillis;
+    }
+
+    private void recordLatency(String host, long latencyMillis) {
+        if (!adaptive || host == null) return;
+        LatencyWindow window = latencies.get(host);
+        if (window == null) {
+            LatencyWindow newWindow = new LatencyWindow();
+            window = latencies.putIfAbsent(host, newWindow);
+            if (window == null) window = newWindow;
+        }
+        window.add(latencyMillis);
+    }
+
+    private final class HedgedCall {
+
+        private final Request request;
+        private final RequestCallback requestCallback;
+        private final ResponseCallback responseCallback;
+        private final String host;
+        private Attempt primary;
+        private Attempt hedge;
+        /** attempt which response is delivered, body of the other one is not read */
+        private volatile Attempt winner;
+        private ScheduledFuture timer;
+        private int pendingAttempts;
+        private boolean finished;
+
+        private HedgedCall(Request request, RequestCallback requestCallback, ResponseCallback responseCallback) {
+            this.request = request;
+            this.requestCallback = requestCallback;
+            this.responseCallback = responseCallback;
+            this.host = RequestUtils.getHost(request.getUrl());
+        }
+
+        private void start() {
+            Attempt primary = new Attempt(this);
+            synchronized (this) {
+                this.primary = primary;
+                pendingAttempts++;
+            }
+            client.enqueue(primary.request, primary, primary);
+            synchronized (this) {
+                if (finished) return;
+                timer = DelayScheduler.INSTANCE.schedule(new Runnable() {
+                    @Override public void run() {
+                        sendHedge();
+                    }
+                }, delayMillis(host), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void sendHedge() {
+            Attempt hedge = new Attempt(this);
+            synchronized (this) {
+                if (finished) return;
+                this.hedge = hedge;
+                pendingAttempts++;
+            }
+            client.enqueue(hedge.request, hedge, hedge);
+        }
+
+        private void cancel() {
+            Attempt[] attempts;
+            synchronized (this) {
+                if (finished) return;
+                attempts = finish();
+            }
+            for (Attempt attempt : attempts) {
+                if (attempt != null) client.cancel(attempt.request);
+            }
+        }
+
+        private void onProgress(Attempt attempt, int progress) {
+            synchronized (this) {
+                if (finished || attempt != primary) return;
+            }
+            requestCallback.onProgress(progress);
+        }
+
+        private void onDownloadProgress(Attempt attempt, int progress) {
+            if (attempt == winner && requestCallback instanceof DownloadProgressCallback) {
+                ((DownloadProgressCallback) requestCallback).onDownloadProgress(progress);
+            }
+        }
+
+        private void onResponse(Attempt attempt, Response response) {
+            Attempt loser;
+            synchronized (this) {
+                if (finished) {
+                    ResponseUtils.closeQuietly(response);
+                    return;
+                }
+                finish();
+                winner = attempt;
+                loser = attempt == primary ? hedge : primary;
+            }
+            if (loser != null) client.cancel(loser.request);
+            // latency of host is one of primary attempt: response of hedge is capped by delay and would lower it,
+            // so if hedge wins, time primary has taken so far is recorded as its least latency
+            recordLatency(host, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - primary.startTime));
+            responseCallback.onResponse(response);
+        }
+
+        private void onFailure(Throwable error) {
+            synchronized (this) {
+                if (finished) return;
+                // another attempt could still succeed
+                if (--pendingAttempts > 0) return;
+                finish();
+            }
+            responseCallback.onFailure(error);
+        }
+
+        /**
+         * @return sent attempts
+         */
+        private Attempt[] finish() {
+            finished = true;
+            if (timer != null) timer.cancel(false);
+            calls.remove(request, this);
+            return new Attempt[]{primary, hedge};
+        }
+    }
+
+    private static final class Attempt implements DownloadProgressCallback, RequestBatcher.BatchableCallback, ResponseCallback {
+
+        private final HedgedCall call;
+        private final Request request;
+        /** attempt is sent right after it's created */
+        private final long startTime;
+
+        private Attempt(HedgedCall call) {
+            this.call = call;
+            Request origin = call.request;
+            this.request = new Request(origin.getMethod(), origin.getUrl(), origin.getHeaders(), origin.getBody(), origin.getDeadlineNanos());
+            this.startTime = System.nanoTime();
+        }
+
+        @Override public void onProgress(int progress) {
+            call.onProgress(this, progress);
+        }
+
+        @Override public boolean isBatchable() {
+            return call.requestCallback instanceof RequestBatcher.BatchableCallback
+                    && ((RequestBatcher.BatchableCallback) call.requestCallback).isBatchable();
+        }
+
+        @Override public void onDownloadProgress(int progress) {
+            call.onDownloadProgress(this, progress);
+        }
+
+        @Override public void onResponse(Response response) {
+            call.onResponse(this, response);
+        }
+
+        @Override public void onFailure(Throwable error) {
+            call.onFailure(error);
+        }
+    }
+
+    /**
+     * Ring buffer of recent latencies with lazily computed percentile
+     */
+    private static final class LatencyWindow {
+
+        private final long[] samples = new long[WINDOW_SIZE];
+        private int count;
+        private int next;
+        private long percentile = -1;
+        private boolean dirty;
+
+        private synchronized void add(long latencyMillis) {
+            samples[next] = latencyMillis;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) count++;
+            dirty = true;
+        }
+
+        private synchronized long percentile() {
+            if (count < MIN_SAMPLES) return -1;
+            if (dirty) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                percentile = sorted[Math.min(count - 1, (int) Math.ceil(count * PERCENTILE) - 1)];
+                dirty = false;
+            }
+            return percentile;
+        }
+    }
+}
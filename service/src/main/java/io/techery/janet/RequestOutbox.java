@@ -0,0 +1,141 @@
+package io.techery.janet;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.techery.janet.body.FileBody;
+import io.techery.janet.http.AsyncHttpClient;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+import io.techery.janet.http.outbox.OutboxListener;
+import io.techery.janet.http.outbox.RequestJournal;
+import io.techery.janet.http.utils.ResponseUtils;
+
+/**
+ * Stores requests of {@linkplain io.techery.janet.http.annotations.Outbox @Outbox} actions in {@linkplain RequestJournal}
+ * and replays them one by one in order they are stored. Replay stops on I/O failure or on response server may answer
+ * differently later ({@code 408}, {@code 429}, {@code 5xx}), stopped request is replayed first by the next replay.
+ * <p>
+ * Request which can never be delivered would block the rest of outbox, so it's dropped if its file body is gone
+ * or its replay is stopped {@linkplain #MAX_REPLAY_ATTEMPTS} times in a row.
+ */
+final class RequestOutbox {
+
+    static final int MAX_REPLAY_ATTEMPTS = 10;
+
+    private final RequestJournal journal;
+    private final AsyncHttpClient client;
+    private final OutboxListener listener;
+    private final AtomicBoolean replaying;
+    /** stopped replays of the first stored request, changed by running replay only */
+    private long headId = -1;
+    private int headAttempts;
+
+    RequestOutbox(RequestJournal journal, AsyncHttpClient client, OutboxListener listener) {
+        this.journal = journal;
+        this.client = client;
+        this.listener = listener;
+        this.replaying = new AtomicBoolean();
+    }
+
+    /**
+     * @return id of stored request or -1 if it can't be stored
+     */
+    long offer(Request request) {
+        try {
+            return journal.append(request);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    void remove(long id) {
+        try {
+            journal.remove(id);
+        } catch (IOException ignored) {} // request is replayed once more then
+    }
+
+    boolean hasPending() {
+        return !journal.isEmpty();
+    }
+
+    /**
+     * Starts replay of stored requests unless it's running already
+     */
+    void replay() {
+        if (journal.isEmpty() || !replaying.compareAndSet(false, true)) return;
+        replayNext();
+    }
+
+    private void replayNext() {
+        final RequestJournal.Entry entry = journal.peek();
+        if (entry == null) {
+            replaying.set(false);
+            // request could be stored right before flag is reset
+            if (!journal.isEmpty()) replay();
+            return;
+        }
+        if (entry.getId() != headId) {
+            headId = entry.getId();
+            headAttempts = 0;
+        }
+        Request stored = entry.getRequest();
+        // client tracks calls by request, so every attempt gets its own one
+        final Request request = new Request(stored.getMethod(), stored.getUrl(), stored.getHeaders(), stored.getBody());
+        if (request.getBody() instanceof FileBody) {
+            File file = ((FileBody) request.getBody()).getFile();
+            if (!file.canRead()) {
+                drop(entry, request, null, new FileNotFoundException(file.getAbsolutePath()));
+                return;
+            }
+        }
+        client.enqueue(request, NO_PROGRESS, new AsyncHttpClient.ResponseCallback() {
+            @Override public void onResponse(Response response) {
+                if (isTransient(response.getStatus())) {
+                    try {
+                        stop(entry, request, response, null);
+                    } finally {
+                        ResponseUtils.closeQuietly(response);
+                    }
+                    return;
+                }
+                remove(entry.getId());
+                try {
+                    listener.onReplayed(request, response);
+                } finally {
+                    ResponseUtils.closeQuietly(response);
+                }
+                replayNext();
+            }
+
+            @Override public void onFailure(Throwable error) {
+                stop(entry, request, null, error);
+            }
+        });
+    }
+
+    private void stop(RequestJournal.Entry entry, Request request, Response response, Throwable error) {
+        if (++headAttempts >= MAX_REPLAY_ATTEMPTS) {
+            drop(entry, request, response, error);
+            return;
+        }
+        replaying.set(false);
+        listener.onReplayStopped(request, response, error);
+    }
+
+    private void drop(RequestJournal.Entry entry, Request request, Response response, Throwable error) {
+        remove(entry.getId());
+        listener.onDropped(request, response, error);
+        replayNext();
+    }
+
+    private static boolean isTransient(int status) {
+        return status == 408 || status == 429 || status >= 500;
+    }
+
+    private static final AsyncHttpClient.RequestCallback NO_PROGRESS = new AsyncHttpClient.RequestCallback() {
+        @Override public void onProgress(int progress) {}
+    };
+}
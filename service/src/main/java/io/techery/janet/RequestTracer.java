@@ -0,0 +1,102 @@
+package io.techery.janet;
+
+import java.util.Random;
+
+import io.techery.janet.http.TracedAction;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+import io.techery.janet.http.tracing.Span;
+import io.techery.janet.http.tracing.TraceContext;
+import io.techery.janet.http.tracing.TracingPolicy;
+
+/**
+ * Propagates W3C trace context with requests and reports client spans of sampled actions, see {@linkplain TracingPolicy}.
+ * Headers are added to {@linkplain RequestBuilder} before the request is built, so they are copied along with other headers.
+ */
+final class RequestTracer {
+
+    static final String TRACEPARENT = "traceparent";
+    static final String TRACESTATE = "tracestate";
+
+    /** generator of every sending thread, so they don't contend on seed of shared one */
+    private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>() {
+        @Override protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    private final TracingPolicy policy;
+
+    RequestTracer(TracingPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Adds trace headers to request of action and starts its span
+     *
+     * @return started span or {@code null} if action is not sampled
+     */
+    ActiveSpan start(Object action, RequestBuilder builder) {
+        TraceContext parent = action instanceof TracedAction ? ((TracedAction) action).getTraceContext() : null;
+        if (parent == null) {
+            if (!sample()) return null;
+            TraceContext context = new TraceContext(nextId(), nextId(), nextId(), true, null);
+            inject(context, builder);
+            return new ActiveSpan(context, null);
+        }
+        if (!parent.isSampled()) {
+            inject(parent, builder);
+            return null;
+        }
+        TraceContext context = parent.child(nextId());
+        inject(context, builder);
+        return new ActiveSpan(context, parent.getSpanId());
+    }
+
+    /**
+     * @param request  built request or {@code null} if action failed to build it
+     * @param response the last response or {@code null}
+     * @param attempts number of request attempts
+     */
+    void finish(ActiveSpan span, Class actionClass, Request request, Response response, Throwable error, int attempts) {
+        policy.reporter().report(new Span(span.context, span.parentSpanId, actionClass, request, span.startTimeMillis,
+                System.nanoTime() - span.startNanos, response != null ? response.getStatus() : 0, error, attempts));
+    }
+
+    private boolean sample() {
+        double sampleRate = policy.sampleRate();
+        if (sampleRate >= 1) return true;
+        return sampleRate > 0 && RANDOM.get().nextDouble() < sampleRate;
+    }
+
+    private long nextId() {
+        Random random = RANDOM.get();
+        long id;
+        do {
+            id = random.nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    private static void inject(TraceContext context, RequestBuilder builder) {
+        builder.addHeader(TRACEPARENT, context.toTraceparent());
+        if (context.getTraceState() != null) {
+            builder.addHeader(TRACESTATE, context.getTraceState());
+        }
+    }
+
+    static final class ActiveSpan {
+
+        private final TraceContext context;
+        private final String parentSpanId;
+        private final long startTimeMillis;
+        private final long startNanos;
+
+        private ActiveSpan(TraceContext context, String parentSpanId) {
+            this.context = context;
+            this.parentSpanId = parentSpanId;
+            this.startTimeMillis = System.currentTimeMillis();
+            this.startNanos = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package io.techery.janet;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.techery.janet.http.ratelimit.RateLimitPolicy;
+
+/**
+ * Lock-free token bucket in form of generic cell rate algorithm: the only state is theoretical arrival time
+ * of the next request, which is moved forward with compare-and-set by every permit.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final long maxWaitNanos;
+    private final AtomicLong arrivalTime;
+
+    TokenBucket(RateLimitPolicy policy) {
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / policy.permitsPerSecond());
+        this.toleranceNanos = intervalNanos * (policy.burst() - 1);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(policy.maxWaitMillis());
+        this.arrivalTime = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Reserves permit
+     *
+     * @return milliseconds to wait before permitted request or -1 if it must be rejected
+     */
+    long acquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long current = arrivalTime.get();
+            long arrival = current - now > 0 ? current : now;
+            long waitNanos = arrival - toleranceNanos - now;
+            if (waitNanos > maxWaitNanos) return -1;
+            if (arrivalTime.compareAndSet(current, arrival + intervalNanos)) {
+                return waitNanos > 0 ? TimeUnit.NANOSECONDS.toMillis(waitNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Doesn't permit requests during given time, e.g. after {@code 429} response with {@code Retry-After}
+     */
+    void pause(long millis) {
+        long resumeTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis) + toleranceNanos;
+        while (true) {
+            long current = arrivalTime.get();
+            if (current - resumeTime >= 0 || arrivalTime.compareAndSet(current, resumeTime)) return;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package io.techery.janet.http;
+
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+
+/**
+ * Non-blocking counterpart of {@linkplain HttpClient}. {@linkplain io.techery.janet.HttpActionService HttpActionService}
+ * drives such client with {@linkplain #enqueue} instead of {@linkplain #execute}, so no thread is parked
+ * while request is in flight.
+ * <p>
+ * Blocking clients can be adapted with {@linkplain ExecutorAsyncHttpClient}.
+ */
+public interface AsyncHttpClient extends HttpClient {
+
+    /**
+     * Asynchronously execute an HTTP represented by {@code request}. Implementation must return immediately
+     * and deliver the result to {@code responseCallback} exactly once, from any thread.
+     * <p>
+     * {@linkplain HttpClient#cancel(Request)} must be supported for enqueued requests as well.
+     */
+    void enqueue(Request request, RequestCallback requestCallback, ResponseCallback responseCallback);
+
+    interface ResponseCallback {
+        void onResponse(Response response);
+
+        void onFailure(Throwable error);
+    }
+}
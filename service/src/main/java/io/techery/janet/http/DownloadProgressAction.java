@@ -0,0 +1,15 @@
+package io.techery.janet.http;
+
+/**
+ * Http action which is notified of download progress of its response body.
+ * Janet progress of action reports upload of request body only, so download is tracked separately with this one.
+ */
+public interface DownloadProgressAction {
+
+    /**
+     * Called on thread which reads response body, so it must be fast and non-blocking
+     *
+     * @param progress percent of response body read, reported only if its length is known
+     */
+    void onDownloadProgress(int progress);
+}
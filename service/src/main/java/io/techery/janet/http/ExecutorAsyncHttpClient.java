@@ -0,0 +1,54 @@
+package io.techery.janet.http;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+
+/**
+ * Adapts a blocking {@linkplain HttpClient} (e.g. {@code UrlConnectionClient} or {@code ApacheClient})
+ * to {@linkplain AsyncHttpClient} by running {@linkplain HttpClient#execute} on the given {@linkplain Executor}.
+ * <p>
+ * Underlying client still blocks a thread per request, but the amount of such threads is bounded by the executor
+ * instead of by the amount of in-flight actions.
+ */
+public class ExecutorAsyncHttpClient implements AsyncHttpClient {
+
+    private final HttpClient delegate;
+    private final Executor executor;
+
+    public ExecutorAsyncHttpClient(HttpClient delegate, Executor executor) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate == null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor == null");
+        }
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override public Response execute(Request request, RequestCallback requestCallback) throws IOException {
+        return delegate.execute(request, requestCallback);
+    }
+
+    @Override public void enqueue(final Request request, final RequestCallback requestCallback, final ResponseCallback responseCallback) {
+        executor.execute(new Runnable() {
+            @Override public void run() {
+                Response response;
+                try {
+                    response = delegate.execute(request, requestCallback);
+                } catch (Throwable e) {
+                    responseCallback.onFailure(e);
+                    return;
+                }
+                responseCallback.onResponse(response);
+            }
+        });
+    }
+
+    @Override public void cancel(Request request) {
+        delegate.cancel(request);
+    }
+}
@@ -0,0 +1,63 @@
+package io.techery.janet.http;
+
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+
+/**
+ * Listener of {@linkplain io.techery.janet.HttpActionService HttpActionService} action processing phases.
+ * Every phase is reported with {@linkplain System#nanoTime()} timestamps of its start and end, so implementations
+ * don't need to measure time. Methods are called on threads which process action, so they must be fast and non-blocking.
+ * <p>
+ * Phases of action in order: {@linkplain #onFillRequest fill request} by generated helper,
+ * {@linkplain #onBuildRequest build request} with converter, {@linkplain #onExecute execute} by
+ * {@linkplain HttpClient} (once per attempt, not called for cached responses) and {@linkplain #onProcessResponse process response}
+ * by generated helper with converter. Canceled actions are not reported with {@linkplain #onActionEnd}.
+ * Start of execution and of response processing is also reported with {@linkplain #onExecuteStart} and
+ * {@linkplain #onProcessResponseStart} for listeners which measure phases on their own, e.g. with JFR events.
+ * Execution could end on other thread than it's started on, processing of response ends on the same thread.
+ * <p>
+ * Progress of request body upload during execution and of response body download during processing of response
+ * is reported separately with {@linkplain #onUploadProgress} and {@linkplain #onDownloadProgress}, each from 0 to 100 percent.
+ * Janet gets upload progress only, download one is also reported to {@linkplain DownloadProgressAction}.
+ */
+public abstract class HttpActionListener {
+
+    public void onActionStart(Class actionClass, long startNanos) {}
+
+    public void onFillRequest(Class actionClass, long startNanos, long endNanos) {}
+
+    public void onBuildRequest(Class actionClass, Request request, long startNanos, long endNanos) {}
+
+    public void onExecuteStart(Class actionClass, Request request) {}
+
+    /**
+     * @param response      response or {@code null} if request is failed
+     * @param error         failure of request or {@code null}
+     * @param requestBytes  length of request body, 0 if there is no body or -1 if it's unknown
+     * @param responseBytes length of response body, 0 if there is no body or -1 if it's unknown
+     */
+    public void onExecute(Class actionClass, Request request, Response response, Throwable error,
+            long startNanos, long endNanos, long requestBytes, long responseBytes) {}
+
+    public void onProcessResponseStart(Class actionClass, Response response) {}
+
+    public void onProcessResponse(Class actionClass, Response response, long startNanos, long endNanos) {}
+
+    /**
+     * @param progress percent of request body written
+     */
+    public void onUploadProgress(Class actionClass, Request request, int progress) {}
+
+    /**
+     * @param progress percent of response body read, reported only if its length is known
+     */
+    public void onDownloadProgress(Class actionClass, Request request, int progress) {}
+
+    /**
+     * @param request  request of action or {@code null} if it's failed to build it
+     * @param response response of action or {@code null} if action is failed without it
+     * @param error    failure of action or {@code null} if it's succeeded
+     */
+    public void onActionEnd(Class actionClass, Request request, Response response, Throwable error,
+            long startNanos, long endNanos) {}
+}
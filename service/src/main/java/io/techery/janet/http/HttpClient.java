@@ -30,6 +30,22 @@ public interface HttpClient {
     void cancel(Request request);
 
     interface RequestCallback {
+
+        /**
+         * @param progress percent of request body written
+         */
         void onProgress(int progress);
     }
+
+    /**
+     * {@linkplain RequestCallback} which is also notified about download of response body.
+     * Clients report download progress only to callbacks which implement it.
+     */
+    interface DownloadProgressCallback extends RequestCallback {
+
+        /**
+         * @param progress percent of response body read, reported only if its length is known
+         */
+        void onDownloadProgress(int progress);
+    }
 }
@@ -0,0 +1,25 @@
+package io.techery.janet.http;
+
+import io.techery.janet.http.model.Request;
+
+/**
+ * Intercepts every request sent to {@linkplain HttpClient}, including retried and hedged ones.
+ * Interceptor passes request on with {@linkplain Chain#proceed}, possibly rewritten, e.g. with auth header,
+ * or answers it itself via callback, e.g. with synthetic response, so request doesn't reach client.
+ * <p>
+ * Result of the rest of chain is delivered to callback given to {@linkplain Chain#proceed},
+ * so interceptor could observe timing or replace response before passing it to its own callback.
+ * Interceptor must deliver exactly one result to its callback, unless request is canceled.
+ */
+public interface HttpInterceptor {
+
+    void intercept(Request request, Chain chain, AsyncHttpClient.ResponseCallback callback);
+
+    interface Chain {
+
+        /**
+         * Passes request to the next interceptor or to {@linkplain HttpClient} after the last one
+         */
+        void proceed(Request request, AsyncHttpClient.ResponseCallback callback);
+    }
+}
@@ -0,0 +1,14 @@
+package io.techery.janet.http;
+
+import io.techery.janet.http.annotations.HttpAction;
+
+/**
+ * Http action which decides its dispatch priority on send, overriding {@linkplain HttpAction#priority()}
+ */
+public interface PrioritizedAction {
+
+    /**
+     * @return priority of this send or {@code null} to use one of {@linkplain HttpAction#priority()}
+     */
+    HttpAction.Priority getPriority();
+}
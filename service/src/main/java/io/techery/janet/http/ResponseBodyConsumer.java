@@ -0,0 +1,34 @@
+package io.techery.janet.http;
+
+import java.io.IOException;
+
+/**
+ * Receives response body in chunks while it's downloaded, so large body is never held in memory.
+ * Action declares it as {@linkplain io.techery.janet.http.annotations.Response @Response} field set before send,
+ * e.g. {@code @Response ResponseBodyConsumer export = new FileExportConsumer(file)}.
+ * <p>
+ * Chunks are delivered on thread reading the body, the next one is read only after {@linkplain #onChunk} returns,
+ * so slow consumer holds download back (backpressure) instead of buffering it.
+ * Response of such action is neither cached nor shared with identical requests.
+ * Body stops with error on the next chunk once action is canceled or its deadline comes.
+ */
+public abstract class ResponseBodyConsumer {
+
+    /**
+     * Called before the first chunk
+     *
+     * @param mimeType type of body or {@code null}
+     * @param length   length of body or -1 if it's unknown
+     */
+    public void onStart(String mimeType, long length) throws IOException {}
+
+    /**
+     * @param buffer is reused for the next chunk, so its content must be consumed or copied before return
+     */
+    public abstract void onChunk(byte[] buffer, int offset, int count) throws IOException;
+
+    /**
+     * Called after the last chunk, body wasn't read completely if it's not called
+     */
+    public void onComplete() throws IOException {}
+}
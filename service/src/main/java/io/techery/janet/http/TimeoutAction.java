@@ -0,0 +1,14 @@
+package io.techery.janet.http;
+
+import io.techery.janet.http.annotations.Timeout;
+
+/**
+ * Http action which decides its deadline on send, overriding {@linkplain Timeout @Timeout}
+ */
+public interface TimeoutAction {
+
+    /**
+     * @return timeout of this send in milliseconds or 0 to use one of {@linkplain Timeout @Timeout}
+     */
+    long getTimeoutMillis();
+}
@@ -0,0 +1,14 @@
+package io.techery.janet.http;
+
+import io.techery.janet.http.tracing.TraceContext;
+
+/**
+ * Http action which continues existing trace, e.g. one of incoming request it's sent while handling
+ */
+public interface TracedAction {
+
+    /**
+     * @return context of parent span or {@code null} to start new trace
+     */
+    TraceContext getTraceContext();
+}
@@ -18,6 +18,12 @@ public @interface HttpAction {
 
     Type type() default Type.SIMPLE;
 
+    /**
+     * Dispatch priority if service schedules requests by priority, see {@linkplain io.techery.janet.http.PrioritizedAction}
+     * to override it per action instance
+     */
+    Priority priority() default Priority.NORMAL;
+
     enum Type {
         /**
          * No content-specific logic required.
@@ -33,6 +39,10 @@ public @interface HttpAction {
         FORM_URL_ENCODED
     }
 
+    enum Priority {
+        LOW, NORMAL, HIGH
+    }
+
     enum Method {
         GET(false), POST(true), PUT(true), DELETE(true), HEAD(false), PATCH(true);
 
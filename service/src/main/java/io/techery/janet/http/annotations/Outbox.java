@@ -0,0 +1,27 @@
+package io.techery.janet.http.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Marks {@code POST}, {@code PUT} or {@code PATCH} {@linkplain HttpAction @HttpAction} which request must be delivered
+ * even if it's sent offline. Request failed with I/O error is stored in journal of service outbox and is replayed
+ * in order later, action fails with {@linkplain io.techery.janet.http.exception.RequestQueuedException RequestQueuedException}.
+ * While outbox has stored requests, new ones are stored after them without sending, so their order is kept.
+ * <pre>{@code  @Outbox
+ * @HttpAction(value = "/messages", method = HttpAction.Method.POST)
+ * public class SendMessageAction {}
+ * }
+ * </pre>
+ * It's ignored unless outbox is set up with {@code HttpActionService.Builder.outbox}.
+ */
+@Documented
+@Inherited
+@Target(TYPE)
+@Retention(RUNTIME)
+public @interface Outbox {}
@@ -0,0 +1,37 @@
+package io.techery.janet.http.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Limits rate of requests of {@linkplain HttpAction @HttpAction} with token bucket.
+ * Overrides service-level {@linkplain io.techery.janet.http.ratelimit.RateLimitPolicy RateLimitPolicy} of its path.
+ * <pre>{@code  @RateLimit(permitsPerSecond = 5, burst = 10)
+ * @HttpAction(value = "/demo", method = HttpAction.Method.GET)
+ * public class ExampleAction {}
+ * }
+ * </pre>
+ */
+@Documented
+@Inherited
+@Target(TYPE)
+@Retention(RUNTIME)
+public @interface RateLimit {
+
+    double permitsPerSecond();
+
+    /**
+     * Number of requests which could be sent at once after idle period
+     */
+    int burst() default 1;
+
+    /**
+     * Max time to wait for permit, action fails if it takes longer
+     */
+    long maxWaitMillis() default 0;
+}
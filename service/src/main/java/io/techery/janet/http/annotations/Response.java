@@ -24,6 +24,9 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
  * <li>{@code @Response(min = 300)} - if one of point of range is not set this point set as infinity. In example,
  * the field will be filled for response witch status code equals or greater than 300</li>
  * </ul>
+ * Large body could be streamed instead of converted: to {@linkplain io.techery.janet.http.ResponseBodyConsumer}
+ * set to the field, or to {@linkplain java.io.File} which is replaced with downloaded body (new temporary file if field is {@code null}).
+ * Conversion of {@linkplain io.techery.janet.http.model.LazyResponse} field is deferred till its first access.
  */
 @Documented
 @Retention(RUNTIME)
@@ -0,0 +1,56 @@
+package io.techery.janet.http.annotations;
+
+import java.io.IOException;
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Retries failed request of {@linkplain HttpAction @HttpAction} with exponential backoff.
+ * Overrides service-level {@linkplain io.techery.janet.http.retry.RetryPolicy RetryPolicy} and,
+ * unlike it, applies to requests of any method.
+ * <pre>{@code  @Retry(maxAttempts = 5, statuses = {503})
+ * @HttpAction(value = "/demo", method = HttpAction.Method.GET)
+ * public class ExampleAction {}
+ * }
+ * </pre>
+ */
+@Documented
+@Inherited
+@Target(TYPE)
+@Retention(RUNTIME)
+public @interface Retry {
+
+    /**
+     * Total number of attempts including the first one
+     */
+    int maxAttempts() default 3;
+
+    /**
+     * Delay before the second attempt, every next one is multiplied by {@linkplain #multiplier()}
+     */
+    long delayMillis() default 500;
+
+    double multiplier() default 2;
+
+    long maxDelayMillis() default 10000;
+
+    /**
+     * Fraction of delay to randomize, e.g. 0.5 means delay is picked from [delay * 0.5, delay * 1.5]
+     */
+    double jitter() default 0.5;
+
+    /**
+     * Response statuses to retry
+     */
+    int[] statuses() default {408, 429, 502, 503, 504};
+
+    /**
+     * Client failures to retry
+     */
+    Class<? extends Throwable>[] exceptions() default {IOException.class};
+}
@@ -0,0 +1,34 @@
+package io.techery.janet.http.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Deadline of {@linkplain HttpAction @HttpAction}: the whole action, from send to processed response, including
+ * waiting in queues, retries and response conversion, must complete within it, otherwise action is canceled and fails
+ * with {@linkplain io.techery.janet.http.exception.DeadlineExceededException DeadlineExceededException}.
+ * Connect and read timeouts of {@linkplain io.techery.janet.http.HttpClient HttpClient} are shortened to the time left.
+ * <pre>{@code  @Timeout(3000)
+ * @HttpAction(value = "/demo", method = HttpAction.Method.GET)
+ * public class ExampleAction {}
+ * }
+ * </pre>
+ *
+ * @see io.techery.janet.http.TimeoutAction
+ */
+@Documented
+@Inherited
+@Target(TYPE)
+@Retention(RUNTIME)
+public @interface Timeout {
+
+    /**
+     * Timeout in milliseconds
+     */
+    long value();
+}
@@ -0,0 +1,93 @@
+package io.techery.janet.http.cache;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import io.techery.janet.http.model.Header;
+
+/**
+ * Parsed {@code Cache-Control} directives of request or response, see RFC 7234 section 5.2
+ */
+final class CacheControl {
+
+    private static final String RFC_1123_PATTERN = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    final boolean noStore;
+    final boolean noCache;
+    final boolean mustRevalidate;
+    /** -1 if not set */
+    final int maxAgeSeconds;
+
+    private CacheControl(boolean noStore, boolean noCache, boolean mustRevalidate, int maxAgeSeconds) {
+        this.noStore = noStore;
+        this.noCache = noCache;
+        this.mustRevalidate = mustRevalidate;
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    static CacheControl parse(List<Header> headers) {
+        boolean noStore = false;
+        boolean noCache = false;
+        boolean mustRevalidate = false;
+        int maxAgeSeconds = -1;
+        for (Header header : headers) {
+            boolean pragma = "Pragma".equalsIgnoreCase(header.getName());
+            if (!pragma && !"Cache-Control".equalsIgnoreCase(header.getName())) continue;
+            if (header.getValue() == null) continue;
+            for (String directive : header.getValue().split(",")) {
+                directive = directive.trim().toLowerCase(Locale.US);
+                if (directive.equals("no-cache")) {
+                    noCache = true;
+                } else if (pragma) {
+                    continue;
+                } else if (directive.equals("no-store")) {
+                    noStore = true;
+                } else if (directive.equals("must-revalidate")) {
+                    mustRevalidate = true;
+                } else if (directive.startsWith("max-age=")) {
+                    maxAgeSeconds = parseSeconds(directive.substring("max-age=".length()));
+                }
+            }
+        }
+        return new CacheControl(noStore, noCache, mustRevalidate, maxAgeSeconds);
+    }
+
+    static String headerValue(List<Header> headers, String name) {
+        for (Header header : headers) {
+            if (name.equalsIgnoreCase(header.getName())) return header.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * @return milliseconds since epoch or -1 if value is absent or malformed
+     */
+    static long parseDate(String value) {
+        if (value == null) return -1;
+        SimpleDateFormat format = new SimpleDateFormat(RFC_1123_PATTERN, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return format.parse(value).getTime();
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    static int parseSeconds(String value) {
+        if (value == null) return -1;
+        value = value.trim();
+        if (value.startsWith("\"") && value.endsWith("\"") && value.length() > 1) {
+            value = value.substring(1, value.length() - 1);
+        }
+        try {
+            long seconds = Long.parseLong(value);
+            if (seconds < 0) return -1;
+            return seconds > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) seconds;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
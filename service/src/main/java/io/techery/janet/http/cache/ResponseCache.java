@@ -0,0 +1,159 @@
+package io.techery.janet.http.cache;
+
+import java.io.IOException;
+
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+
+/**
+ * In-memory LRU cache of {@code GET} responses for {@linkplain io.techery.janet.HttpActionService HttpActionService}.
+ * Follows RFC 7234 rules of private cache without revalidation:
+ * <ul>
+ * <li>response is stored only if it has explicit freshness from {@code Cache-Control: max-age} or {@code Expires}</li>
+ * <li>{@code no-store} and {@code no-cache} directives of request and response are honoured</li>
+ * <li>stored response is used only for requests with the same values of headers listed in its {@code Vary}</li>
+ * <li>successful unsafe request (e.g. {@code POST}) invalidates stored response for the same url</li>
+ * </ul>
+ * Cache size is measured in bytes of stored response bodies.
+ */
+public final class ResponseCache {
+
+    private final ResponseStore<Entry> store;
+
+    public ResponseCache(long maxSize) {
+        this.store = new ResponseStore<Entry>(maxSize);
+    }
+
+    /**
+     * @return fresh stored response for the request or {@code null}
+     */
+    public Response get(Request request) {
+        if (!"GET".equals(request.getMethod())) return null;
+        CacheControl requestControl = CacheControl.parse(request.getHeaders());
+        if (requestControl.noStore || requestControl.noCache) return null;
+        long now = System.currentTimeMillis();
+        Entry entry = store.get(request);
+        if (entry != null) {
+            long age = entry.age(now);
+            if (age < entry.freshnessLifetime
+                    && (requestControl.maxAgeSeconds == -1 || age <= requestControl.maxAgeSeconds * 1000L)) {
+                store.recordHit();
+                return entry.response;
+            }
+        }
+        store.recordMiss();
+        return null;
+    }
+
+    /**
+     * Stores response if it's cacheable.
+     *
+     * @return response that must be used instead of given one, as it's body could be consumed by caching
+     */
+    public Response put(Request request, Response response) throws IOException {
+        String method = request.getMethod();
+        if (!"GET".equals(method)) {
+            if (!"HEAD".equals(method) && response.isSuccessful()) {
+                remove(request.getUrl());
+            }
+            return response;
+        }
+        long responseTime = System.currentTimeMillis();
+        CacheControl requestControl = CacheControl.parse(request.getHeaders());
+        CacheControl responseControl = CacheControl.parse(response.getHeaders());
+        if (requestControl.noStore || responseControl.noStore || responseControl.noCache
+                || !isCacheable(response.getStatus())) {
+            return response;
+        }
+        String vary = CacheControl.headerValue(response.getHeaders(), "Vary");
+        if (ResponseStore.varyAll(vary)) return response;
+        long dateMillis = CacheControl.parseDate(CacheControl.headerValue(response.getHeaders(), "Date"));
+        long freshnessLifetime = freshnessLifetime(response, responseControl, dateMillis, responseTime);
+        if (freshnessLifetime <= 0) return response;
+        //
+        Response buffered = store.buffer(response);
+        if (!store.fits(buffered)) return buffered;
+        //
+        long apparentAge = dateMillis == -1 ? 0 : Math.max(0, responseTime - dateMillis);
+        int ageSeconds = CacheControl.parseSeconds(CacheControl.headerValue(response.getHeaders(), "Age"));
+        long initialAge = Math.max(apparentAge, ageSeconds == -1 ? 0 : ageSeconds * 1000L);
+        store.put(request.getUrl(), new Entry(buffered, vary, request, responseTime, initialAge, freshnessLifetime));
+        return buffered;
+    }
+
+    public void remove(String url) {
+        store.remove(url);
+    }
+
+    public void evictAll() {
+        store.evictAll();
+    }
+
+    public long maxSize() {
+        return store.maxSize();
+    }
+
+    public long size() {
+        return store.size();
+    }
+
+    public long hitCount() {
+        return store.hitCount();
+    }
+
+    public long missCount() {
+        return store.missCount();
+    }
+
+    public long evictionCount() {
+        return store.evictionCount();
+    }
+
+    private static boolean isCacheable(int status) {
+        switch (status) {
+            case 200:
+            case 203:
+            case 204:
+            case 300:
+            case 301:
+            case 404:
+            case 405:
+            case 410:
+            case 414:
+            case 501:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static long freshnessLifetime(Response response, CacheControl control, long dateMillis, long responseTime) {
+        if (control.maxAgeSeconds != -1) {
+            return control.maxAgeSeconds * 1000L;
+        }
+        String expires = CacheControl.headerValue(response.getHeaders(), "Expires");
+        if (expires != null) {
+            long expiresMillis = CacheControl.parseDate(expires);
+            if (expiresMillis == -1) return 0; // invalid date means already expired
+            return expiresMillis - (dateMillis != -1 ? dateMillis : responseTime);
+        }
+        return 0;
+    }
+
+    private static final class Entry extends ResponseStore.Entry {
+        private final long responseTime;
+        private final long initialAge;
+        private final long freshnessLifetime;
+
+        private Entry(Response response, String vary, Request request, long responseTime, long initialAge, long freshnessLifetime) {
+            super(response, vary, request);
+            this.responseTime = responseTime;
+            this.initialAge = initialAge;
+            this.freshnessLifetime = freshnessLifetime;
+        }
+
+        private long age(long now) {
+            return initialAge + Math.max(0, now - responseTime);
+        }
+    }
+}
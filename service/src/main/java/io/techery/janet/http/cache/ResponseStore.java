@@ -0,0 +1,158 @@
+package io.techery.janet.http.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+import io.techery.janet.http.utils.ResponseUtils;
+
+/**
+ * In-memory LRU store of buffered responses by url, shared by {@linkplain ResponseCache} and {@linkplain RevalidationCache}.
+ * Stored response is used only for requests with the same values of headers listed in its {@code Vary}.
+ * Store size is measured in bytes of stored response bodies.
+ */
+final class ResponseStore<E extends ResponseStore.Entry> {
+
+    private final long maxSize;
+    private final LinkedHashMap<String, E> entries;
+    private long size;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    ResponseStore(long maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<String, E>(16, 0.75f, true);
+    }
+
+    /**
+     * @return stored entry for the url of request if it matches {@code Vary} headers of request or {@code null}
+     */
+    synchronized E get(Request request) {
+        E entry = entries.get(request.getUrl());
+        return entry != null && entry.matches(request) ? entry : null;
+    }
+
+    /**
+     * @return response with body buffered to be stored, or given one if its body is known to not fit
+     */
+    Response buffer(Response response) throws IOException {
+        if (!fits(response)) return response;
+        return ResponseUtils.buffer(response);
+    }
+
+    boolean fits(Response response) {
+        return response.getBody() == null || response.getBody().length() <= maxSize;
+    }
+
+    synchronized void put(String url, E entry) {
+        E previous = entries.put(url, entry);
+        if (previous != null) size -= previous.size;
+        size += entry.size;
+        trimToSize();
+    }
+
+    synchronized void remove(String url) {
+        E previous = entries.remove(url);
+        if (previous != null) size -= previous.size;
+    }
+
+    synchronized void evictAll() {
+        entries.clear();
+        size = 0;
+    }
+
+    synchronized void recordHit() {
+        hitCount++;
+    }
+
+    synchronized void recordMiss() {
+        missCount++;
+    }
+
+    long maxSize() {
+        return maxSize;
+    }
+
+    synchronized long size() {
+        return size;
+    }
+
+    synchronized long hitCount() {
+        return hitCount;
+    }
+
+    synchronized long missCount() {
+        return missCount;
+    }
+
+    synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, E>> iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            E eldest = iterator.next().getValue();
+            iterator.remove();
+            size -= eldest.size;
+            evictionCount++;
+        }
+    }
+
+    /**
+     * @return {@code true} if response with such {@code Vary} header can't be matched with any request
+     */
+    static boolean varyAll(String vary) {
+        return vary != null && vary.trim().equals("*");
+    }
+
+    /**
+     * Stored response with values of request headers listed in its {@code Vary}
+     */
+    static class Entry {
+        final Response response;
+        private final List<Header> varyHeaders;
+        final long size;
+
+        /**
+         * @param response buffered response
+         * @param vary     {@code Vary} header of response or {@code null}
+         */
+        Entry(Response response, String vary, Request request) {
+            this.response = response;
+            this.varyHeaders = varyHeaders(vary, request);
+            this.size = response.getBody() != null ? response.getBody().length() : 0;
+        }
+
+        boolean matches(Request request) {
+            for (Header header : varyHeaders) {
+                String value = CacheControl.headerValue(request.getHeaders(), header.getName());
+                if (value == null ? header.getValue() != null : !value.equals(header.getValue())) return false;
+            }
+            return true;
+        }
+
+        private static List<Header> varyHeaders(String vary, Request request) {
+            if (vary == null) return Collections.emptyList();
+            List<Header> headers = new ArrayList<Header>();
+            for (String name : vary.split(",")) {
+                name = name.trim();
+                if (name.length() == 0) continue;
+                headers.add(new Header(name, CacheControl.headerValue(request.getHeaders(), name)));
+            }
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package io.techery.janet.http.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+import io.techery.janet.http.utils.ResponseUtils;
+
+/**
+ * In-memory LRU store of {@code GET} responses with validators for {@linkplain io.techery.janet.HttpActionService HttpActionService}.
+ * Request with stored response is sent conditional: with {@code If-None-Match} of its {@code ETag}
+ * and {@code If-Modified-Since} of its {@code Last-Modified}. {@code 304 Not Modified} is replaced with the stored response,
+ * which headers are updated with ones of {@code 304}, so it's processed by action as {@code 200}.
+ * <p>
+ * Unlike {@linkplain ResponseCache} response is stored regardless of its freshness, as it's never used without revalidation:
+ * <ul>
+ * <li>only {@code 200} response with {@code ETag} or {@code Last-Modified} is stored, unless it's {@code no-store}</li>
+ * <li>stored response is used only for requests with the same values of headers listed in its {@code Vary}</li>
+ * <li>request which is conditional already is sent as is</li>
+ * <li>successful unsafe request (e.g. {@code POST}) removes stored response for the same url</li>
+ * </ul>
+ * Store size is measured in bytes of stored response bodies.
+ */
+public final class RevalidationCache {
+
+    static final String IF_NONE_MATCH = "If-None-Match";
+    static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    private final ResponseStore<ResponseStore.Entry> store;
+
+    public RevalidationCache(long maxSize) {
+        this.store = new ResponseStore<ResponseStore.Entry>(maxSize);
+    }
+
+    /**
+     * @return stored response to revalidate with request or {@code null}
+     */
+    public Response get(Request request) {
+        if (!"GET".equals(request.getMethod())) return null;
+        List<Header> headers = request.getHeaders();
+        if (CacheControl.headerValue(headers, IF_NONE_MATCH) != null
+                || CacheControl.headerValue(headers, IF_MODIFIED_SINCE) != null
+                || CacheControl.parse(headers).noStore) {
+            return null;
+        }
+        ResponseStore.Entry entry = store.get(request);
+        return entry != null ? entry.response : null;
+    }
+
+    /**
+     * @return copy of request with validators of stored response
+     */
+    public static Request conditionalRequest(Request request, Response stored) {
+        List<Header> headers = new ArrayList<Header>(request.getHeaders());
+        String etag = CacheControl.headerValue(stored.getHeaders(), "ETag");
+        if (etag != null) headers.add(new Header(IF_NONE_MATCH, etag));
+        String lastModified = CacheControl.headerValue(stored.getHeaders(), "Last-Modified");
+        if (lastModified != null) headers.add(new Header(IF_MODIFIED_SINCE, lastModified));
+        return new Request(request.getMethod(), request.getUrl(), headers, request.getBody(), request.getDeadlineNanos());
+    }
+
+    /**
+     * Replaces {@code 304} with stored response or stores response if it has validators.
+     *
+     * @param stored response request was made conditional with or {@code null}
+     * @return response that must be used instead of given one, as it's body could be consumed by storing
+     */
+    public Response put(Request request, Response response, Response stored) throws IOException {
+        String method = request.getMethod();
+        if (!"GET".equals(method)) {
+            if (!"HEAD".equals(method) && response.isSuccessful()) {
+                remove(request.getUrl());
+            }
+            return response;
+        }
+        if (response.getStatus() == 304 && stored != null) {
+            store.recordHit();
+            ResponseUtils.closeQuietly(response);
+            return store(request, new Response(stored.getUrl(), stored.getStatus(), stored.getReason(),
+                    updateHeaders(stored.getHeaders(), response.getHeaders()), stored.getBody())
+            );
+        }
+        if (stored != null) {
+            store.recordMiss();
+        }
+        return store(request, response);
+    }
+
+    private Response store(Request request, Response response) throws IOException {
+        if (response.getStatus() != 200 || CacheControl.parse(response.getHeaders()).noStore
+                || CacheControl.parse(request.getHeaders()).noStore) {
+            return response;
+        }
+        List<Header> headers = response.getHeaders();
+        if (CacheControl.headerValue(headers, "ETag") == null && CacheControl.headerValue(headers, "Last-Modified") == null) {
+            remove(request.getUrl());
+            return response;
+        }
+        String vary = CacheControl.headerValue(headers, "Vary");
+        if (ResponseStore.varyAll(vary)) return response;
+        //
+        Response buffered = store.buffer(response);
+        if (!store.fits(buffered)) return buffered;
+        //
+        store.put(request.getUrl(), new ResponseStore.Entry(buffered, vary, request));
+        return buffered;
+    }
+
+    public void remove(String url) {
+        store.remove(url);
+    }
+
+    public void evictAll() {
+        store.evictAll();
+    }
+
+    public long maxSize() {
+        return store.maxSize();
+    }
+
+    public long size() {
+        return store.size();
+    }
+
+    /**
+     * @return count of {@code 304} responses replaced with stored ones
+     */
+    public long hitCount() {
+        return store.hitCount();
+    }
+
+    /**
+     * @return count of conditional requests answered with changed response
+     */
+    public long missCount() {
+        return store.missCount();
+    }
+
+    public long evictionCount() {
+        return store.evictionCount();
+    }
+
+    /**
+     * @return stored headers replaced with ones of {@code 304} response, except of body ones
+     */
+    private static List<Header> updateHeaders(List<Header> storedHeaders, List<Header> headers) {
+        List<Header> updated = new ArrayList<Header>(storedHeaders.size() + headers.size());
+        for (Header header : storedHeaders) {
+            if (!isBodyHeader(header.getName()) && CacheControl.headerValue(headers, header.getName()) != null) continue;
+            updated.add(header);
+        }
+        for (Header header : headers) {
+            if (header.getName() != null && !isBodyHeader(header.getName())) updated.add(header);
+        }
+        return updated;
+    }
+
+    private static boolean isBodyHeader(String name) {
+        return name == null || "Content-Length".equalsIgnoreCase(name) || "Content-Type".equalsIgnoreCase(name)
+                || "Content-Encoding".equalsIgnoreCase(name) || "Transfer-Encoding".equalsIgnoreCase(name);
+    }
+}
@@ -0,0 +1,134 @@
+package io.techery.janet.http.circuitbreaker;
+
+/**
+ * Configuration of per-host circuit breaker of {@linkplain io.techery.janet.HttpActionService HttpActionService}.
+ * <p>
+ * Outcomes of the last {@code windowSize} calls to a host are recorded. Call is failed if it's failed on request
+ * or its response status is 5xx, and it's slow if it takes longer than {@code slowCallDurationMillis}.
+ * Once there are at least {@code minimumCalls} recorded calls and failure or slow call rate reaches its threshold,
+ * breaker opens and calls to the host fail fast without reaching {@linkplain io.techery.janet.http.HttpClient HttpClient}.
+ * After {@code openDurationMillis} breaker is half-open and permits {@code halfOpenCalls} trial calls,
+ * rates of which decide whether breaker closes or opens again.
+ */
+public final class CircuitBreakerPolicy {
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final float failureRateThreshold;
+    private final float slowCallRateThreshold;
+    private final long slowCallDurationMillis;
+    private final long openDurationMillis;
+    private final int halfOpenCalls;
+
+    private CircuitBreakerPolicy(Builder builder) {
+        this.windowSize = builder.windowSize;
+        this.minimumCalls = builder.minimumCalls;
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.slowCallRateThreshold = builder.slowCallRateThreshold;
+        this.slowCallDurationMillis = builder.slowCallDurationMillis;
+        this.openDurationMillis = builder.openDurationMillis;
+        this.halfOpenCalls = builder.halfOpenCalls;
+    }
+
+    public int windowSize() {
+        return windowSize;
+    }
+
+    public int minimumCalls() {
+        return minimumCalls;
+    }
+
+    public float failureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public float slowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public long slowCallDurationMillis() {
+        return slowCallDurationMillis;
+    }
+
+    public long openDurationMillis() {
+        return openDurationMillis;
+    }
+
+    public int halfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    public static final class Builder {
+
+        private int windowSize = 100;
+        private int minimumCalls = 20;
+        private float failureRateThreshold = 0.5f;
+        private float slowCallRateThreshold = 1f;
+        private long slowCallDurationMillis = 10000;
+        private long openDurationMillis = 30000;
+        private int halfOpenCalls = 5;
+
+        /**
+         * @param windowSize   number of recorded last calls
+         * @param minimumCalls number of recorded calls required to calculate rates
+         */
+        public Builder window(int windowSize, int minimumCalls) {
+            if (windowSize < 1) {
+                throw new IllegalArgumentException("windowSize < 1");
+            }
+            if (minimumCalls < 1 || minimumCalls > windowSize) {
+                throw new IllegalArgumentException("minimumCalls must be in [1, windowSize]");
+            }
+            this.windowSize = windowSize;
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        /**
+         * @param failureRateThreshold rate in (0, 1] of failed calls to open breaker
+         */
+        public Builder failureRateThreshold(float failureRateThreshold) {
+            this.failureRateThreshold = checkRate(failureRateThreshold);
+            return this;
+        }
+
+        /**
+         * @param slowCallRateThreshold rate in (0, 1] of slow calls to open breaker
+         */
+        public Builder slowCalls(long slowCallDurationMillis, float slowCallRateThreshold) {
+            if (slowCallDurationMillis < 1) {
+                throw new IllegalArgumentException("slowCallDurationMillis < 1");
+            }
+            this.slowCallDurationMillis = slowCallDurationMillis;
+            this.slowCallRateThreshold = checkRate(slowCallRateThreshold);
+            return this;
+        }
+
+        public Builder openDurationMillis(long openDurationMillis) {
+            if (openDurationMillis < 0) {
+                throw new IllegalArgumentException("openDurationMillis < 0");
+            }
+            this.openDurationMillis = openDurationMillis;
+            return this;
+        }
+
+        public Builder halfOpenCalls(int halfOpenCalls) {
+            if (halfOpenCalls < 1) {
+                throw new IllegalArgumentException("halfOpenCalls < 1");
+            }
+            this.halfOpenCalls = halfOpenCalls;
+            return this;
+        }
+
+        public CircuitBreakerPolicy build() {
+            return new CircuitBreakerPolicy(this);
+        }
+
+        private static float checkRate(float rate) {
+            if (rate <= 0 || rate > 1) {
+                throw new IllegalArgumentException("rate must be in (0, 1]");
+            }
+            return rate;
+        }
+    }
+}
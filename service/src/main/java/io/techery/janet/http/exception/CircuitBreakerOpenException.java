@@ -0,0 +1,22 @@
+package io.techery.janet.http.exception;
+
+import io.techery.janet.http.model.Request;
+
+/**
+ * Thrown to indicate that request wasn't sent, because circuit breaker of its host is open
+ * after too many failed or slow calls.
+ * See {@linkplain io.techery.janet.http.circuitbreaker.CircuitBreakerPolicy CircuitBreakerPolicy}
+ */
+public class CircuitBreakerOpenException extends HttpException {
+
+    private final String host;
+
+    public CircuitBreakerOpenException(Request request, String host) {
+        super("HTTP call is not permitted, circuit breaker is open for host=" + host, request, null, null);
+        this.host = host;
+    }
+
+    public String getHost() {
+        return host;
+    }
+}
@@ -0,0 +1,22 @@
+package io.techery.janet.http.exception;
+
+import io.techery.janet.http.model.Request;
+
+/**
+ * Thrown to indicate that request wasn't sent, because its host has reached concurrency limit and queue of waiting
+ * requests is full.
+ * See {@linkplain io.techery.janet.http.limit.ConcurrencyLimitPolicy ConcurrencyLimitPolicy}
+ */
+public class ConcurrencyLimitException extends HttpException {
+
+    private final String host;
+
+    public ConcurrencyLimitException(Request request, String host) {
+        super("HTTP call is rejected, concurrency limit is reached for host=" + host, request, null, null);
+        this.host = host;
+    }
+
+    public String getHost() {
+        return host;
+    }
+}
@@ -0,0 +1,14 @@
+package io.techery.janet.http.exception;
+
+import io.techery.janet.http.model.Request;
+
+/**
+ * Thrown to indicate that action didn't complete within its {@linkplain io.techery.janet.http.annotations.Timeout timeout},
+ * so its request is canceled
+ */
+public class DeadlineExceededException extends HttpException {
+
+    public DeadlineExceededException(Request request, long timeoutMillis) {
+        super("HTTP action didn't complete within " + timeoutMillis + "ms", request, null, null);
+    }
+}
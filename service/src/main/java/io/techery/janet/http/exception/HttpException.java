@@ -29,7 +29,11 @@ public class HttpException extends Exception {
     }
 
     private HttpException(Request request, Response response, Throwable cause) {
-        super(createMessage(request, response), cause);
+        this(createMessage(request, response), request, response, cause);
+    }
+
+    protected HttpException(String message, Request request, Response response, Throwable cause) {
+        super(message, cause);
         this.request = request;
         this.response = response;
     }
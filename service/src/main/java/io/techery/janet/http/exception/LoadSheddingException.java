@@ -0,0 +1,14 @@
+package io.techery.janet.http.exception;
+
+import io.techery.janet.http.model.Request;
+
+/**
+ * Thrown to indicate that queued request wasn't sent, because it was shed in favour of higher priority requests
+ * when the queue overflowed.
+ */
+public class LoadSheddingException extends HttpException {
+
+    public LoadSheddingException(Request request) {
+        super("HTTP call is shed due to overload", request, null, null);
+    }
+}
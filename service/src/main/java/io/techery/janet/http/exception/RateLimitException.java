@@ -0,0 +1,14 @@
+package io.techery.janet.http.exception;
+
+import io.techery.janet.http.model.Request;
+
+/**
+ * Thrown to indicate that request wasn't sent, because it would wait for rate limit permit longer than allowed.
+ * See {@linkplain io.techery.janet.http.ratelimit.RateLimitPolicy RateLimitPolicy}
+ */
+public class RateLimitException extends HttpException {
+
+    public RateLimitException(Request request) {
+        super("HTTP call is rejected by rate limit", request, null, null);
+    }
+}
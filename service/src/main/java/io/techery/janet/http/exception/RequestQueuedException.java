@@ -0,0 +1,17 @@
+package io.techery.janet.http.exception;
+
+import io.techery.janet.http.model.Request;
+
+/**
+ * Thrown to indicate that request of {@linkplain io.techery.janet.http.annotations.Outbox @Outbox} action wasn't delivered yet,
+ * but it's stored in outbox journal to be replayed later, see {@linkplain io.techery.janet.http.outbox.RequestJournal RequestJournal}
+ */
+public class RequestQueuedException extends HttpException {
+
+    /**
+     * @param cause failure of request or {@code null} if it's stored after ones which are not replayed yet
+     */
+    public RequestQueuedException(Request request, Throwable cause) {
+        super("HTTP request is queued to be sent later", request, null, cause);
+    }
+}
@@ -0,0 +1,56 @@
+package io.techery.janet.http.internal;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public final class ProgressInputStream extends FilterInputStream {
+
+    private final ProgressListener listener;
+    private final long threshold;
+    private long progress;
+    private long lastProgress;
+
+    public ProgressInputStream(InputStream stream, ProgressListener listener, long threshold) {
+        super(stream);
+        this.listener = listener;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) onRead(1);
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) throws IOException {
+        int read = super.read(buffer, offset, count);
+        if (read > 0) onRead(read);
+        return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = super.skip(count);
+        if (skipped > 0) onRead(skipped);
+        return skipped;
+    }
+
+    private void onRead(long count) {
+        progress += count;
+        if (progress > lastProgress + threshold) {
+            listener.onProgressChanged(progress);
+            lastProgress = progress;
+        }
+    }
+
+    public long getThreshold() {
+        return threshold;
+    }
+
+    public interface ProgressListener {
+        void onProgressChanged(long bytesRead);
+    }
+}
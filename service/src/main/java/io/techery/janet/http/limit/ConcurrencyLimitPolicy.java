@@ -0,0 +1,106 @@
+package io.techery.janet.http.limit;
+
+/**
+ * Configuration of adaptive per-host limit of in-flight requests of {@linkplain io.techery.janet.HttpActionService HttpActionService}.
+ * <p>
+ * Limit follows AIMD: it's decreased by {@code backoffRatio} if call fails on request, gets {@code 429} or {@code 503}
+ * status, or its latency exceeds minimal observed one by {@code latencyTolerance} times;
+ * otherwise it grows by one per limit of successful calls while the limit is utilized.
+ * Requests above the limit wait in queue of {@code maxQueueSize}, the rest are rejected.
+ */
+public final class ConcurrencyLimitPolicy {
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueSize;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+
+    private ConcurrencyLimitPolicy(Builder builder) {
+        this.initialLimit = builder.initialLimit;
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.maxQueueSize = builder.maxQueueSize;
+        this.backoffRatio = builder.backoffRatio;
+        this.latencyTolerance = builder.latencyTolerance;
+    }
+
+    public int initialLimit() {
+        return initialLimit;
+    }
+
+    public int minLimit() {
+        return minLimit;
+    }
+
+    public int maxLimit() {
+        return maxLimit;
+    }
+
+    public int maxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public double backoffRatio() {
+        return backoffRatio;
+    }
+
+    public double latencyTolerance() {
+        return latencyTolerance;
+    }
+
+    public static final class Builder {
+
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+        private int maxQueueSize = 100;
+        private double backoffRatio = 0.9;
+        private double latencyTolerance = 2;
+
+        public Builder limit(int initialLimit, int minLimit, int maxLimit) {
+            if (minLimit < 1) {
+                throw new IllegalArgumentException("minLimit < 1");
+            }
+            if (initialLimit < minLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("initialLimit must be in [minLimit, maxLimit]");
+            }
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * @param maxQueueSize number of requests waiting for the limit, 0 to reject them right away
+         */
+        public Builder maxQueueSize(int maxQueueSize) {
+            if (maxQueueSize < 0) {
+                throw new IllegalArgumentException("maxQueueSize < 0");
+            }
+            this.maxQueueSize = maxQueueSize;
+            return this;
+        }
+
+        public Builder backoffRatio(double backoffRatio) {
+            if (backoffRatio <= 0 || backoffRatio >= 1) {
+                throw new IllegalArgumentException("backoffRatio must be in (0, 1)");
+            }
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        public Builder latencyTolerance(double latencyTolerance) {
+            if (latencyTolerance < 1) {
+                throw new IllegalArgumentException("latencyTolerance < 1");
+            }
+            this.latencyTolerance = latencyTolerance;
+            return this;
+        }
+
+        public ConcurrencyLimitPolicy build() {
+            return new ConcurrencyLimitPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package io.techery.janet.http.metrics;
+
+/**
+ * Immutable state of {@linkplain LatencyHistogram}. Values are in microseconds.
+ */
+public final class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long sum, long max) {
+        this.counts = counts;
+        long count = 0;
+        for (long bucketCount : counts) count += bucketCount;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMaxMicros() {
+        return max;
+    }
+
+    public double getMeanMicros() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param percentile in range [0, 100], e.g. 99.9
+     * @return value such that given percent of recorded values are not greater than it, 0 if there are no values
+     */
+    public long getPercentileMicros(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be in [0, 100]");
+        }
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) return Math.min(max, LatencyHistogram.bucketValue(i));
+        }
+        return max;
+    }
+
+    public long getP50Micros() {
+        return getPercentileMicros(50);
+    }
+
+    public long getP90Micros() {
+        return getPercentileMicros(90);
+    }
+
+    public long getP99Micros() {
+        return getPercentileMicros(99);
+    }
+
+    public long getP999Micros() {
+        return getPercentileMicros(99.9);
+    }
+
+    @Override public String toString() {
+        return "HistogramSnapshot{count=" + count
+                + ", p50=" + format(getP50Micros())
+                + ", p90=" + format(getP90Micros())
+                + ", p99=" + format(getP99Micros())
+                + ", p999=" + format(getP999Micros())
+                + ", max=" + format(max)
+                + '}';
+    }
+
+    private static String format(long micros) {
+        return micros + "us";
+    }
+}
@@ -0,0 +1,114 @@
+package io.techery.janet.http.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import io.techery.janet.http.HttpActionListener;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+import io.techery.janet.http.utils.RequestUtils;
+
+/**
+ * Registry of latency histograms, status and byte counts of {@linkplain io.techery.janet.HttpActionService HttpActionService}:
+ * <ul>
+ * <li>per action class for whole action processing, from send to result</li>
+ * <li>per host for every network execution of request</li>
+ * </ul>
+ * <pre>{@code HttpMetrics metrics = new HttpMetrics();
+ * new HttpActionService.Builder(API_URL, client, converter)
+ *         .metrics(metrics)
+ *         .build();
+ * ...
+ * metrics.getActionMetrics(ExampleAction.class).getLatency().getP99Micros();
+ * }
+ * </pre>
+ */
+public final class HttpMetrics extends HttpActionListener {
+
+    private final ConcurrentMap<Class, Recorder> actions = new ConcurrentHashMap<Class, Recorder>();
+    private final ConcurrentMap<String, Recorder> hosts = new ConcurrentHashMap<String, Recorder>();
+
+    @Override public void onExecute(Class actionClass, Request request, Response response, Throwable error,
+            long startNanos, long endNanos, long requestBytes, long responseBytes) {
+        String host = RequestUtils.getHost(request.getUrl());
+        if (host == null) return;
+        recorder(hosts, host).record(endNanos - startNanos, response, requestBytes, responseBytes);
+    }
+
+    @Override public void onActionEnd(Class actionClass, Request request, Response response, Throwable error,
+            long startNanos, long endNanos) {
+        long requestBytes = request != null && request.getBody() != null ? request.getBody().length() : 0;
+        long responseBytes = response != null && response.getBody() != null ? response.getBody().length() : 0;
+        recorder(actions, actionClass).record(endNanos - startNanos, response, requestBytes, responseBytes);
+    }
+
+    /**
+     * @return metrics of action class or {@code null} if there were no actions of it
+     */
+    public MetricsSnapshot getActionMetrics(Class actionClass) {
+        Recorder recorder = actions.get(actionClass);
+        return recorder != null ? recorder.snapshot() : null;
+    }
+
+    /**
+     * @param host host with port if it's set, e.g. {@code api.example.com:8080}
+     * @return metrics of host or {@code null} if there were no requests to it
+     */
+    public MetricsSnapshot getHostMetrics(String host) {
+        Recorder recorder = hosts.get(host);
+        return recorder != null ? recorder.snapshot() : null;
+    }
+
+    /**
+     * Passes snapshots of every action class and host to exporter
+     */
+    public void export(MetricsExporter exporter) {
+        for (Map.Entry<Class, Recorder> entry : actions.entrySet()) {
+            exporter.exportAction(entry.getKey(), entry.getValue().snapshot());
+        }
+        for (Map.Entry<String, Recorder> entry : hosts.entrySet()) {
+            exporter.exportHost(entry.getKey(), entry.getValue().snapshot());
+        }
+    }
+
+    private static <K> Recorder recorder(ConcurrentMap<K, Recorder> recorders, K key) {
+        Recorder recorder = recorders.get(key);
+        if (recorder == null) {
+            Recorder newRecorder = new Recorder();
+            recorder = recorders.putIfAbsent(key, newRecorder);
+            if (recorder == null) recorder = newRecorder;
+        }
+        return recorder;
+    }
+
+    private static final class Recorder {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLongArray statusCounts = new AtomicLongArray(5);
+        private final AtomicLong failureCount = new AtomicLong();
+        private final AtomicLong requestBytes = new AtomicLong();
+        private final AtomicLong responseBytes = new AtomicLong();
+
+        private void record(long durationNanos, Response response, long requestBytes, long responseBytes) {
+            latency.record(durationNanos);
+            if (response != null) {
+                int statusClass = response.getStatus() / 100;
+                if (statusClass >= 1 && statusClass <= 5) statusCounts.incrementAndGet(statusClass - 1);
+            } else {
+                failureCount.incrementAndGet();
+            }
+            if (requestBytes > 0) this.requestBytes.addAndGet(requestBytes);
+            if (responseBytes > 0) this.responseBytes.addAndGet(responseBytes);
+        }
+
+        private MetricsSnapshot snapshot() {
+            long[] statusCounts = new long[this.statusCounts.length()];
+            for (int i = 0; i < statusCounts.length; i++) statusCounts[i] = this.statusCounts.get(i);
+            return new MetricsSnapshot(latency.snapshot(), statusCounts, failureCount.get(),
+                    requestBytes.get(), responseBytes.get());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package io.techery.janet.http.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory log-linear histogram of latencies with microsecond resolution.
+ * Every power of two range of values is split into {@value #SUB_BUCKET_COUNT} linear buckets,
+ * so recorded values are kept with relative error under 3%. Values above ~38 hours (2^37 microseconds) are recorded as max trackable one.
+ * <p>
+ * Recording is lock-free and striped by thread to reduce contention, stripes are merged by {@linkplain #snapshot()}.
+ * Every stripe keeps its own counts, sum and max in single array padded at both ends,
+ * so threads recording to different stripes don't write to the same cache line.
+ */
+public final class LatencyHistogram {
+
+    private static final int PRECISION_BITS = 5;
+    static final int SUB_BUCKET_COUNT = 1 << PRECISION_BITS;
+    private static final int MAX_VALUE_BITS = 36;
+    static final long MAX_TRACKABLE_MICROS = (1L << (MAX_VALUE_BITS + 1)) - 1;
+    static final int BUCKET_COUNT = bucketIndex(MAX_TRACKABLE_MICROS) + 1;
+
+    /** longs to pad stripe with, 128 bytes covers adjacent cache line prefetch */
+    private static final int PADDING = 16;
+    private static final int SUM_INDEX = PADDING + BUCKET_COUNT;
+    private static final int MAX_INDEX = SUM_INDEX + 1;
+    private static final int STRIPE_LENGTH = MAX_INDEX + 1 + PADDING;
+
+    private final int stripeMask;
+    /** bucket counts from {@code PADDING}, then sum and max */
+    private final AtomicLongArray[] stripes;
+
+    public LatencyHistogram() {
+        int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+        this.stripeMask = stripeCount - 1;
+        this.stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) stripes[i] = new AtomicLongArray(STRIPE_LENGTH);
+    }
+
+    public void record(long durationNanos) {
+        long micros = Math.min(MAX_TRACKABLE_MICROS, Math.max(0, TimeUnit.NANOSECONDS.toMicros(durationNanos)));
+        AtomicLongArray stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+        stripe.incrementAndGet(PADDING + bucketIndex(micros));
+        stripe.addAndGet(SUM_INDEX, micros);
+        long currentMax;
+        while (micros > (currentMax = stripe.get(MAX_INDEX)) && !stripe.compareAndSet(MAX_INDEX, currentMax, micros)) ;
+    }
+
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long sum = 0;
+        long max = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) counts[i] += stripe.get(PADDING + i);
+            sum += stripe.get(SUM_INDEX);
+            max = Math.max(max, stripe.get(MAX_INDEX));
+        }
+        return new HistogramSnapshot(counts, sum, max);
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKET_COUNT) return (int) micros;
+        int highestBit = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = highestBit - PRECISION_BITS;
+        int subBucket = (int) (micros >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * @return middle value of bucket in microseconds
+     */
+    static long bucketValue(int index) {
+        if (index < SUB_BUCKET_COUNT) return index;
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        long lowest = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+        return lowest + ((1L << shift) >> 1);
+    }
+}
@@ -0,0 +1,15 @@
+package io.techery.janet.http.metrics;
+
+/**
+ * Receives metrics snapshots on {@linkplain HttpMetrics#export(MetricsExporter)},
+ * e.g. to log them or to pass them to metrics framework.
+ */
+public interface MetricsExporter {
+
+    void exportAction(Class actionClass, MetricsSnapshot snapshot);
+
+    /**
+     * @param host host with port if it's set, e.g. {@code api.example.com:8080}
+     */
+    void exportHost(String host, MetricsSnapshot snapshot);
+}
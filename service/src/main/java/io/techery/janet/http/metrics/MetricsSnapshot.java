@@ -0,0 +1,69 @@
+package io.techery.janet.http.metrics;
+
+/**
+ * Immutable state of metrics of action class or host
+ */
+public final class MetricsSnapshot {
+
+    private final HistogramSnapshot latency;
+    private final long[] statusCounts;
+    private final long failureCount;
+    private final long requestBytes;
+    private final long responseBytes;
+
+    MetricsSnapshot(HistogramSnapshot latency, long[] statusCounts, long failureCount, long requestBytes, long responseBytes) {
+        this.latency = latency;
+        this.statusCounts = statusCounts;
+        this.failureCount = failureCount;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+    }
+
+    public HistogramSnapshot getLatency() {
+        return latency;
+    }
+
+    /**
+     * @param statusClass first digit of status, e.g. 2 for {@code 2xx} responses
+     * @return number of responses with status of given class
+     */
+    public long getStatusCount(int statusClass) {
+        if (statusClass < 1 || statusClass > 5) {
+            throw new IllegalArgumentException("statusClass must be in [1, 5]");
+        }
+        return statusCounts[statusClass - 1];
+    }
+
+    /**
+     * @return number of calls failed without response
+     */
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * @return total length of request bodies with known length
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * @return total length of response bodies with known length
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    @Override public String toString() {
+        return "MetricsSnapshot{latency=" + latency
+                + ", 2xx=" + statusCounts[1]
+                + ", 3xx=" + statusCounts[2]
+                + ", 4xx=" + statusCounts[3]
+                + ", 5xx=" + statusCounts[4]
+                + ", failures=" + failureCount
+                + ", requestBytes=" + requestBytes
+                + ", responseBytes=" + responseBytes
+                + '}';
+    }
+}
@@ -0,0 +1,77 @@
+package io.techery.janet.http.model;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.Executor;
+
+import io.techery.janet.body.ActionBody;
+import io.techery.janet.converter.Converter;
+import io.techery.janet.converter.ConverterException;
+
+/**
+ * Response body which is converted on the first {@linkplain #get()}, so parsing isn't paid on network thread
+ * for response nobody reads. Type of {@linkplain io.techery.janet.http.annotations.Response @Response} field opts in,
+ * e.g. {@code @Response LazyResponse<User> user}.
+ * <p>
+ * Body is buffered once response is received and released after conversion, result or failure of which is memoized.
+ * Conversion could be started ahead of access with {@linkplain #convertOn(Executor)}, then {@linkplain #get()} waits for it.
+ */
+public final class LazyResponse<T> {
+
+    private final Type type;
+    private ActionBody body;
+    private Converter converter;
+    private volatile boolean converted;
+    private T value;
+    private ConverterException error;
+
+    public LazyResponse(ActionBody body, Converter converter, Type type) {
+        this.body = body;
+        this.converter = converter;
+        this.type = type;
+    }
+
+    /**
+     * @return converted body, it's converted on this thread if it's not converted yet
+     * @throws ConverterException if body can't be converted, the same one for every call
+     */
+    public T get() throws ConverterException {
+        if (!converted) convert();
+        if (error != null) throw error;
+        return value;
+    }
+
+    public boolean isConverted() {
+        return converted;
+    }
+
+    /**
+     * Starts conversion on executor unless body is converted already
+     */
+    public void convertOn(Executor executor) {
+        if (converted) return;
+        executor.execute(new Runnable() {
+            @Override public void run() {
+                convert();
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized void convert() {
+        if (converted) return;
+        try {
+            value = (T) converter.fromBody(body, type);
+        } catch (ConverterException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = ConverterException.forDeserialization(e);
+        }
+        body = null;
+        converter = null;
+        converted = true;
+    }
+
+    @Override public String toString() {
+        return "LazyResponse{" + (converted ? (error != null ? "error=" + error : "value=" + value) : "type=" + type) + '}';
+    }
+}
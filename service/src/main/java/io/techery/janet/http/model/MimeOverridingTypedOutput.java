@@ -28,4 +28,8 @@ public class MimeOverridingTypedOutput extends ActionBody {
         delegate.writeContentTo(os);
     }
 
+    public ActionBody getDelegate() {
+        return delegate;
+    }
+
 }
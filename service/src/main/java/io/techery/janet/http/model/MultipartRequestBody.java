@@ -14,10 +14,12 @@ import java.util.List;
 import java.util.UUID;
 
 import io.techery.janet.body.ActionBody;
+import io.techery.janet.http.utils.RequestUtils;
 
 public final class MultipartRequestBody extends ActionBody {
 
     public static final String MIMETYPE_FORM_DATA = "multipart/form-data";
+    public static final String MIMETYPE_MIXED = "multipart/mixed";
     public static final String DEFAULT_TRANSFER_ENCODING = "binary";
 
     private static final String DASH_DASH = "--";
@@ -26,16 +28,26 @@ public final class MultipartRequestBody extends ActionBody {
     private final List<MimePart> mimeParts = new LinkedList<MimePart>();
 
     private final String boundary;
+    private final boolean formData;
     private final byte[] footer;
     private long length;
 
     public MultipartRequestBody() {
-        this(UUID.randomUUID().toString());
+        this(MIMETYPE_FORM_DATA);
     }
 
-    MultipartRequestBody(String boundary) {
-        super(MIMETYPE_FORM_DATA + "; boundary=" + boundary); //TODO add support for other mime types
+    /**
+     * @param mimeType multipart type, e.g. {@linkplain #MIMETYPE_FORM_DATA} or {@linkplain #MIMETYPE_MIXED}.
+     *                 For types other than {@code multipart/form-data} part name is written as {@code Content-ID} of the part.
+     */
+    public MultipartRequestBody(String mimeType) {
+        this(mimeType, UUID.randomUUID().toString());
+    }
+
+    MultipartRequestBody(String mimeType, String boundary) {
+        super(mimeType + "; boundary=" + boundary);
         this.boundary = boundary;
+        this.formData = MIMETYPE_FORM_DATA.equals(mimeType);
         footer = buildBoundary(boundary, false, true);
         length = footer.length;
     }
@@ -69,7 +81,7 @@ public final class MultipartRequestBody extends ActionBody {
             throw new NullPointerException("Part body must not be null.");
         }
 
-        MimePart part = new MimePart(name, transferEncoding, body, boundary, mimeParts.isEmpty());
+        MimePart part = new MimePart(name, transferEncoding, body, boundary, mimeParts.isEmpty(), formData);
         mimeParts.add(part);
 
         long size = part.size();
@@ -94,23 +106,36 @@ public final class MultipartRequestBody extends ActionBody {
         return mimeParts.size();
     }
 
+    /**
+     * @return {@code true} if content of every part could be written more than once
+     * @see RequestUtils#isReplayable(ActionBody)
+     */
+    public boolean isReplayable() {
+        for (MimePart part : mimeParts) {
+            if (!RequestUtils.isReplayable(part.bodyWrapper.body)) return false;
+        }
+        return true;
+    }
+
     private static final class MimePart {
         private final String name;
         private final String transferEncoding;
         private final PartBody bodyWrapper;
         private final boolean isFirst;
         private final String boundary;
+        private final boolean formData;
 
         private byte[] partBoundary;
         private byte[] partHeader;
         private boolean isBuilt;
 
-        public MimePart(String name, String transferEncoding, PartBody bodyWrapper, String boundary, boolean isFirst) {
+        public MimePart(String name, String transferEncoding, PartBody bodyWrapper, String boundary, boolean isFirst, boolean formData) {
             this.name = name;
             this.transferEncoding = transferEncoding;
             this.bodyWrapper = bodyWrapper;
             this.isFirst = isFirst;
             this.boundary = boundary;
+            this.formData = formData;
         }
 
         public InputStream getContent() throws IOException {
@@ -142,23 +167,27 @@ public final class MultipartRequestBody extends ActionBody {
         private void build() {
             if (isBuilt) return;
             partBoundary = buildBoundary(boundary, isFirst, false);
-            partHeader = buildHeader(name, transferEncoding, bodyWrapper.headers, bodyWrapper.body);
+            partHeader = buildHeader(name, transferEncoding, bodyWrapper.headers, bodyWrapper.body, formData);
             isBuilt = true;
         }
 
-        private static byte[] buildHeader(String name, String transferEncoding, List<Header> headers, ActionBody value) {
+        private static byte[] buildHeader(String name, String transferEncoding, List<Header> headers, ActionBody value, boolean formData) {
             try {
                 StringBuilder result = new StringBuilder();
 
-                result.append("Content-Disposition: form-data");
-                result.append("; name=");
-                appendQuotedString(result, name);
-                for (Header header : headers) {
-                    if (header.getName().equals("filename")) {
-                        result.append("; filename=");
-                        appendQuotedString(result, header.getValue());
-                        break;
+                if (formData) {
+                    result.append("Content-Disposition: form-data");
+                    result.append("; name=");
+                    appendQuotedString(result, name);
+                    for (Header header : headers) {
+                        if (header.getName().equals("filename")) {
+                            result.append("; filename=");
+                            appendQuotedString(result, header.getValue());
+                            break;
+                        }
                     }
+                } else {
+                    result.append("Content-ID: <").append(name).append('>');
                 }
                 result.append(CRLF);
 
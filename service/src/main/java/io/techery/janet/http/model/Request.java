@@ -13,6 +13,7 @@ public final class Request {
     private final String url;
     private final List<Header> headers;
     private final ActionBody body;
+    private final long deadlineNanos;
     /**
      * Some object to mark a request.
      * For example, it'is using for cancellation in OkClient, ApacheClient, UrlConnectionClient
@@ -20,6 +21,13 @@ public final class Request {
     public volatile Object tag;
 
     public Request(String method, String url, List<Header> headers, ActionBody body) {
+        this(method, url, headers, body, 0);
+    }
+
+    /**
+     * @param deadlineNanos {@linkplain System#nanoTime()} by which request must complete or 0 if there is no deadline
+     */
+    public Request(String method, String url, List<Header> headers, ActionBody body, long deadlineNanos) {
         if (method == null) {
             throw new NullPointerException("Method must not be null.");
         }
@@ -36,6 +44,7 @@ public final class Request {
         }
 
         this.body = body;
+        this.deadlineNanos = deadlineNanos;
     }
 
     public String getMethod() {
@@ -53,4 +62,12 @@ public final class Request {
     public ActionBody getBody() {
         return body;
     }
+
+    /**
+     * @return {@linkplain System#nanoTime()} by which request must complete or 0 if there is no deadline
+     * @see io.techery.janet.http.utils.RequestUtils#getTimeoutMillis(Request, int)
+     */
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
 }
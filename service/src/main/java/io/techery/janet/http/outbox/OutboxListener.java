@@ -0,0 +1,35 @@
+package io.techery.janet.http.outbox;
+
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+
+/**
+ * Listener of requests replayed from outbox. Action of replayed request could be gone, e.g. after app restart,
+ * so response is delivered here instead. Methods are called on threads of {@linkplain io.techery.janet.http.HttpClient HttpClient}.
+ */
+public abstract class OutboxListener {
+
+    /**
+     * Request is delivered and removed from outbox. Response body is closed after return.
+     *
+     * @param response response of server, it could be unsuccessful, e.g. {@code 400}
+     */
+    public void onReplayed(Request request, Response response) {}
+
+    /**
+     * Replay is stopped as server is still unreachable or unavailable, request is kept to be replayed later
+     *
+     * @param response response of server, e.g. {@code 503}, or {@code null}
+     * @param error    failure of request or {@code null}
+     */
+    public void onReplayStopped(Request request, Response response, Throwable error) {}
+
+    /**
+     * Request is removed from outbox undelivered, as its file body is gone or its replay is stopped too many times in a row.
+     * Response body is closed after return.
+     *
+     * @param response the last response of server, e.g. {@code 503}, or {@code null}
+     * @param error    the last failure of request or {@code null}
+     */
+    public void onDropped(Request request, Response response, Throwable error) {}
+}
@@ -0,0 +1,476 @@
+package io.techery.janet.http.outbox;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import io.techery.janet.body.ActionBody;
+import io.techery.janet.body.BytesArrayBody;
+import io.techery.janet.body.FileBody;
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.utils.ResponseUtils;
+
+/**
+ * Durable outbox of requests for {@linkplain io.techery.janet.HttpActionService HttpActionService}: append-only journal file
+ * of added and removed requests, which are replayed in order they are added.
+ * <p>
+ * Request is stored with method, url, headers and body: bytes of {@linkplain FileBody} are not copied, it's stored by path,
+ * so the file must be kept till request is delivered, other bodies are stored as bytes.
+ * Every record is framed with its length and CRC32, so record torn by crash is dropped with the rest of journal on open.
+ * <p>
+ * Added request is synced to disk before {@linkplain #append} returns. Requests added concurrently share single sync:
+ * the ones added while previous sync is running are synced together by the next one.
+ * Removal is not synced, so request could be replayed once more after crash.
+ * <p>
+ * Journal is compacted (rewritten with live requests only) once removed requests take more than half of it.
+ * Checking for pending requests never waits for journal I/O: neither sync nor compaction hold lock of them.
+ * Journal size is limited with {@code maxSize} bytes, request which doesn't fit is not added.
+ */
+public final class RequestJournal implements Closeable {
+
+    static final String JOURNAL_FILE = "outbox.journal";
+    static final String JOURNAL_FILE_TEMP = "outbox.journal.tmp";
+
+    private static final int ADD = 1;
+    private static final int REMOVE = 2;
+    private static final int BODY_NONE = 0;
+    private static final int BODY_BYTES = 1;
+    private static final int BODY_FILE = 2;
+    /** length and checksum of record */
+    private static final int FRAME_SIZE = 8;
+    private static final long MIN_COMPACTION_SIZE = 64 * 1024;
+
+    private final File directory;
+    private final File journalFile;
+    private final long maxSize;
+    /** guarded by itself, it's never held while doing I/O */
+    private final LinkedHashMap<Long, Entry> entries;
+    /** count of entries, which is read without lock */
+    private final AtomicInteger pendingCount;
+    private final AtomicLong nextId;
+    private volatile boolean closed;
+
+    /** guards journal file: appending to it and replacing it with compacted one */
+    private final Object fileLock = new Object();
+    private FileOutputStream stream;
+    /** size of journal file */
+    private long journalSize;
+    /** size of records of live requests */
+    private long liveSize;
+    private long writtenCount;
+    /** records written while journal is compacted, they are moved to compacted one, or {@code null} */
+    private List<byte[]> compactionTail;
+
+    /** serializes syncs and compactions */
+    private final Object syncLock = new Object();
+    /** guarded by {@code syncLock} */
+    private long syncedCount;
+
+    /**
+     * Opens journal in directory, requests which are not removed from it yet are loaded to be replayed
+     *
+     * @param maxSize max size of journal file in bytes
+     */
+    public RequestJournal(File directory, long maxSize) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory == null");
+        }
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create directory " + directory);
+        }
+        this.directory = directory;
+        this.journalFile = new File(directory, JOURNAL_FILE);
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<Long, Entry>();
+        this.pendingCount = new AtomicInteger();
+        this.nextId = new AtomicLong();
+        load();
+        this.stream = new FileOutputStream(journalFile, true);
+        if (needsCompaction()) compact();
+    }
+
+    /**
+     * Stores request durably
+     *
+     * @return id of stored request or -1 if it doesn't fit to journal
+     */
+    public long append(Request request) throws IOException {
+        long id = nextId.getAndIncrement();
+        Request stored = storedRequest(request);
+        byte[] record = frame(encodeAdd(id, stored));
+        long count;
+        for (int attempt = 0; ; attempt++) {
+            synchronized (fileLock) {
+                checkNotClosed();
+                if (liveSize + record.length > maxSize) return -1;
+                if (journalSize + record.length <= maxSize) {
+                    write(record);
+                    synchronized (entries) {
+                        entries.put(id, new Entry(id, stored, record.length));
+                    }
+                    pendingCount.incrementAndGet();
+                    liveSize += record.length;
+                    count = writtenCount;
+                    break;
+                }
+            }
+            if (attempt > 0) return -1;
+            compact();
+        }
+        sync(count);
+        return id;
+    }
+
+    /**
+     * Removes delivered request
+     */
+    public void remove(long id) throws IOException {
+        synchronized (fileLock) {
+            checkNotClosed();
+            Entry entry;
+            synchronized (entries) {
+                entry = entries.remove(id);
+            }
+            if (entry == null) return;
+            pendingCount.decrementAndGet();
+            liveSize -= entry.size;
+            write(frame(encodeRemove(id)));
+        }
+        if (needsCompaction()) compact();
+    }
+
+    /**
+     * @return the first request to replay or {@code null} if journal is empty
+     */
+    public Entry peek() {
+        synchronized (entries) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+    }
+
+    public List<Entry> entries() {
+        synchronized (entries) {
+            return new ArrayList<Entry>(entries.values());
+        }
+    }
+
+    /**
+     * It never waits for journal I/O, so it could be checked on every request
+     */
+    public boolean isEmpty() {
+        return pendingCount.get() == 0;
+    }
+
+    public int count() {
+        return pendingCount.get();
+    }
+
+    /**
+     * @return size of journal file in bytes
+     */
+    public long size() {
+        synchronized (fileLock) {
+            return journalSize;
+        }
+    }
+
+    public long maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Rewrites journal with requests which are not removed yet, replacing it atomically.
+     * Journal is rewritten and synced without blocking appends, they are moved to compacted journal on replacement.
+     */
+    public void compact() throws IOException {
+        synchronized (syncLock) {
+            List<Entry> live;
+            long snapshotCount;
+            synchronized (fileLock) {
+                checkNotClosed();
+                live = entries();
+                snapshotCount = writtenCount;
+                compactionTail = new ArrayList<byte[]>();
+            }
+            File tempFile = new File(directory, JOURNAL_FILE_TEMP);
+            FileOutputStream tempStream = null;
+            try {
+                tempStream = new FileOutputStream(tempFile);
+                long size = 0;
+                for (Entry entry : live) {
+                    byte[] record = frame(encodeAdd(entry.id, entry.request));
+                    tempStream.write(record);
+                    size += record.length;
+                }
+                tempStream.getFD().sync();
+                synchronized (fileLock) {
+                    // records of the tail are not synced yet, their appenders sync compacted journal
+                    for (byte[] record : compactionTail) {
+                        tempStream.write(record);
+                        size += record.length;
+                    }
+                    tempStream.close();
+                    tempStream = null;
+                    stream.close();
+                    // rename doesn't replace existing file on some platforms, temp one is picked up on open then
+                    if (!tempFile.renameTo(journalFile) && !(journalFile.delete() && tempFile.renameTo(journalFile))) {
+                        stream = new FileOutputStream(journalFile, true);
+                        throw new IOException("Can't move " + tempFile + " to " + journalFile);
+                    }
+                    stream = new FileOutputStream(journalFile, true);
+                    journalSize = size;
+                }
+                syncedCount = snapshotCount;
+            } finally {
+                synchronized (fileLock) {
+                    compactionTail = null;
+                }
+                if (tempStream != null) {
+                    tempStream.close();
+                    tempFile.delete();
+                }
+            }
+        }
+    }
+
+    @Override public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (fileLock) {
+                if (closed) return;
+                closed = true;
+                stream.close();
+            }
+        }
+    }
+
+    /**
+     * Appends record, guarded by {@code fileLock}
+     */
+    private void write(byte[] record) throws IOException {
+        stream.write(record);
+        journalSize += record.length;
+        writtenCount++;
+        if (compactionTail != null) compactionTail.add(record);
+    }
+
+    /**
+     * Syncs journal unless record is synced by concurrent call already
+     */
+    private void sync(long count) throws IOException {
+        synchronized (syncLock) {
+            if (syncedCount >= count) return;
+            FileOutputStream stream;
+            long written;
+            synchronized (fileLock) {
+                checkNotClosed();
+                stream = this.stream;
+                written = writtenCount;
+            }
+            // records are appended meanwhile and synced by the next call
+            stream.getFD().sync();
+            syncedCount = written;
+        }
+    }
+
+    private boolean needsCompaction() {
+        synchronized (fileLock) {
+            return compactionTail == null && journalSize > MIN_COMPACTION_SIZE && journalSize > liveSize * 2;
+        }
+    }
+
+    private void checkNotClosed() throws IOException {
+        if (closed) throw new IOException("Journal is closed");
+    }
+
+    private void load() throws IOException {
+        File tempFile = new File(directory, JOURNAL_FILE_TEMP);
+        if (journalFile.length() == 0 && tempFile.exists()) {
+            // compacted journal which is synced already, but it's not moved in place
+            tempFile.renameTo(journalFile);
+        }
+        if (!journalFile.exists()) return;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+        long validSize = 0;
+        try {
+            while (true) {
+                int length = in.readInt();
+                if (length <= 0 || length > maxSize) break;
+                byte[] data = new byte[length];
+                in.readFully(data);
+                if (in.readInt() != checksum(data)) break;
+                apply(data, FRAME_SIZE + length);
+                validSize += FRAME_SIZE + length;
+            }
+        } catch (EOFException ignored) {
+            // the last record is torn
+        } finally {
+            in.close();
+        }
+        if (validSize < journalFile.length()) {
+            RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+            try {
+                file.setLength(validSize);
+            } finally {
+                file.close();
+            }
+        }
+        journalSize = validSize;
+        pendingCount.set(entries.size());
+    }
+
+    private void apply(byte[] data, long size) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        int type = in.readByte();
+        long id = in.readLong();
+        if (id >= nextId.get()) nextId.set(id + 1);
+        if (type == ADD) {
+            entries.put(id, new Entry(id, decodeRequest(in), size));
+            liveSize += size;
+        } else if (type == REMOVE) {
+            Entry entry = entries.remove(id);
+            if (entry != null) liveSize -= entry.size;
+        }
+    }
+
+    /**
+     * @return copy of request with body which could be read again
+     */
+    private static Request storedRequest(Request request) throws IOException {
+        ActionBody body = request.getBody();
+        if (body != null && !(body instanceof BytesArrayBody) && !(body instanceof FileBody)) {
+            body = new BytesArrayBody(body.mimeType(), ResponseUtils.readAll(body));
+        }
+        return new Request(request.getMethod(), request.getUrl(), request.getHeaders(), body);
+    }
+
+    private static byte[] encodeAdd(long id, Request request) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(ADD);
+        out.writeLong(id);
+        out.writeUTF(request.getMethod());
+        out.writeUTF(request.getUrl());
+        List<Header> headers = request.getHeaders();
+        out.writeInt(headers.size());
+        for (Header header : headers) {
+            writeString(out, header.getName());
+            writeString(out, header.getValue());
+        }
+        ActionBody body = request.getBody();
+        if (body == null) {
+            out.writeByte(BODY_NONE);
+        } else if (body instanceof FileBody) {
+            out.writeByte(BODY_FILE);
+            writeString(out, body.mimeType());
+            out.writeUTF(((FileBody) body).getFile().getAbsolutePath());
+        } else {
+            out.writeByte(BODY_BYTES);
+            writeString(out, body.mimeType());
+            byte[] content = ((BytesArrayBody) body).getBytes();
+            out.writeInt(content.length);
+            out.write(content);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeRemove(long id) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(9);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(REMOVE);
+        out.writeLong(id);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Request decodeRequest(DataInputStream in) throws IOException {
+        String method = in.readUTF();
+        String url = in.readUTF();
+        int headerCount = in.readInt();
+        List<Header> headers = new ArrayList<Header>(headerCount);
+        for (int i = 0; i < headerCount; i++) {
+            headers.add(new Header(readString(in), readString(in)));
+        }
+        ActionBody body = null;
+        int bodyType = in.readByte();
+        if (bodyType == BODY_FILE) {
+            body = new FileBody(readString(in), new File(in.readUTF()));
+        } else if (bodyType == BODY_BYTES) {
+            String mimeType = readString(in);
+            byte[] content = new byte[in.readInt()];
+            in.readFully(content);
+            body = new BytesArrayBody(mimeType, content);
+        }
+        return new Request(method, url, headers, body);
+    }
+
+    private static byte[] frame(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(FRAME_SIZE + data.length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(data.length);
+        out.write(data);
+        out.writeInt(checksum(data));
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static int checksum(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Stored request
+     */
+    public static final class Entry {
+
+        private final long id;
+        private final Request request;
+        private final long size;
+
+        private Entry(long id, Request request, long size) {
+            this.id = id;
+            this.request = request;
+            this.size = size;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public Request getRequest() {
+            return request;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package io.techery.janet.http.ratelimit;
+
+import io.techery.janet.http.annotations.RateLimit;
+
+/**
+ * Rate limit of requests: {@code permitsPerSecond} on average with up to {@code burst} requests at once.
+ * Request waits for permit up to {@code maxWaitMillis}, otherwise its action fails with
+ * {@linkplain io.techery.janet.http.exception.RateLimitException RateLimitException}.
+ */
+public final class RateLimitPolicy {
+
+    private final double permitsPerSecond;
+    private final int burst;
+    private final long maxWaitMillis;
+
+    public RateLimitPolicy(double permitsPerSecond, int burst, long maxWaitMillis) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond <= 0");
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst < 1");
+        }
+        if (maxWaitMillis < 0) {
+            throw new IllegalArgumentException("maxWaitMillis < 0");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public static RateLimitPolicy from(RateLimit rateLimit) {
+        return new RateLimitPolicy(rateLimit.permitsPerSecond(), rateLimit.burst(), rateLimit.maxWaitMillis());
+    }
+
+    public double permitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int burst() {
+        return burst;
+    }
+
+    public long maxWaitMillis() {
+        return maxWaitMillis;
+    }
+}
@@ -0,0 +1,180 @@
+package io.techery.janet.http.retry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import io.techery.janet.http.annotations.Retry;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+import io.techery.janet.http.utils.ResponseUtils;
+
+/**
+ * Decides whether failed request should be sent again and how long to wait before it.
+ * <p>
+ * Delay grows exponentially from {@code delayMillis} by {@code multiplier} up to {@code maxDelayMillis}
+ * and is randomized by {@code jitter} fraction. {@code Retry-After} header of response is honoured
+ * if it's greater than computed delay, but is capped by {@code maxDelayMillis} too.
+ */
+public final class RetryPolicy {
+
+    private static final Set<String> IDEMPOTENT_METHODS = new HashSet<String>(Arrays.asList("GET", "HEAD", "PUT", "DELETE"));
+
+    private final int maxAttempts;
+    private final long delayMillis;
+    private final double multiplier;
+    private final long maxDelayMillis;
+    private final double jitter;
+    private final Set<Integer> statuses;
+    private final List<Class<? extends Throwable>> exceptions;
+    private final boolean idempotentOnly;
+    private final Random random = new Random();
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.delayMillis = builder.delayMillis;
+        this.multiplier = builder.multiplier;
+        this.maxDelayMillis = builder.maxDelayMillis;
+        this.jitter = builder.jitter;
+        this.statuses = Collections.unmodifiableSet(new HashSet<Integer>(builder.statuses));
+        this.exceptions = Collections.unmodifiableList(new ArrayList<Class<? extends Throwable>>(builder.exceptions));
+        this.idempotentOnly = builder.idempotentOnly;
+    }
+
+    /**
+     * Creates policy declared by annotation, which applies to requests of any method
+     */
+    public static RetryPolicy from(Retry retry) {
+        Builder builder = new Builder()
+                .maxAttempts(retry.maxAttempts())
+                .delay(retry.delayMillis(), retry.multiplier(), retry.maxDelayMillis())
+                .jitter(retry.jitter())
+                .exceptions(retry.exceptions())
+                .idempotentOnly(false);
+        Integer[] statuses = new Integer[retry.statuses().length];
+        for (int i = 0; i < statuses.length; i++) statuses[i] = retry.statuses()[i];
+        return builder.statuses(statuses).build();
+    }
+
+    /**
+     * @param attempt number of failed attempt, starting from 1
+     */
+    public boolean shouldRetry(Request request, int attempt, Response response) {
+        return canRetry(request, attempt) && statuses.contains(response.getStatus());
+    }
+
+    /**
+     * @param attempt number of failed attempt, starting from 1
+     */
+    public boolean shouldRetry(Request request, int attempt, Throwable error) {
+        if (!canRetry(request, attempt)) return false;
+        for (Class<? extends Throwable> exception : exceptions) {
+            if (exception.isInstance(error)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param attempt  number of failed attempt, starting from 1
+     * @param response failed response or {@code null} if request failed without it
+     */
+    public long delayMillis(int attempt, Response response) {
+        double delay = delayMillis * Math.pow(multiplier, attempt - 1);
+        if (jitter > 0) {
+            double randomFactor;
+            synchronized (random) {
+                randomFactor = random.nextDouble();
+            }
+            delay = delay * (1 - jitter + 2 * jitter * randomFactor);
+        }
+        long result = (long) Math.min(delay, maxDelayMillis);
+        if (response != null) {
+            long retryAfter = ResponseUtils.getRetryAfterMillis(response);
+            if (retryAfter > result) result = Math.min(retryAfter, maxDelayMillis);
+        }
+        return result;
+    }
+
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    private boolean canRetry(Request request, int attempt) {
+        return attempt < maxAttempts && (!idempotentOnly || IDEMPOTENT_METHODS.contains(request.getMethod()));
+    }
+
+    public static final class Builder {
+
+        private int maxAttempts = 3;
+        private long delayMillis = 500;
+        private double multiplier = 2;
+        private long maxDelayMillis = 10000;
+        private double jitter = 0.5;
+        private List<Integer> statuses = Arrays.asList(408, 429, 502, 503, 504);
+        private List<Class<? extends Throwable>> exceptions = Collections.<Class<? extends Throwable>>singletonList(IOException.class);
+        private boolean idempotentOnly = true;
+
+        /**
+         * Total number of attempts including the first one
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts < 1");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder delay(long delayMillis, double multiplier, long maxDelayMillis) {
+            if (delayMillis < 0) {
+                throw new IllegalArgumentException("delayMillis < 0");
+            }
+            if (multiplier < 1) {
+                throw new IllegalArgumentException("multiplier < 1");
+            }
+            if (maxDelayMillis < delayMillis) {
+                throw new IllegalArgumentException("maxDelayMillis < delayMillis");
+            }
+            this.delayMillis = delayMillis;
+            this.multiplier = multiplier;
+            this.maxDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        public Builder jitter(double jitter) {
+            if (jitter < 0 || jitter > 1) {
+                throw new IllegalArgumentException("jitter must be in [0, 1]");
+            }
+            this.jitter = jitter;
+            return this;
+        }
+
+        public Builder statuses(Integer... statuses) {
+            this.statuses = Arrays.asList(statuses);
+            return this;
+        }
+
+        public Builder exceptions(Class<? extends Throwable>... exceptions) {
+            this.exceptions = Arrays.asList(exceptions);
+            return this;
+        }
+
+        /**
+         * Whether only requests of idempotent methods ({@code GET}, {@code HEAD}, {@code PUT}, {@code DELETE})
+         * could be retried. It's {@code true} by default.
+         */
+        public Builder idempotentOnly(boolean idempotentOnly) {
+            this.idempotentOnly = idempotentOnly;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
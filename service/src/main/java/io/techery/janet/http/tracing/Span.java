@@ -0,0 +1,102 @@
+package io.techery.janet.http.tracing;
+
+import io.techery.janet.http.model.Request;
+
+/**
+ * Finished client span of sampled action: from building of its request till the end of action processing,
+ * including all attempts of retried request.
+ */
+public final class Span {
+
+    private final TraceContext context;
+    private final String parentSpanId;
+    private final Class actionClass;
+    private final Request request;
+    private final long startTimeMillis;
+    private final long durationNanos;
+    private final int status;
+    private final Throwable error;
+    private final int attempts;
+
+    public Span(TraceContext context, String parentSpanId, Class actionClass, Request request,
+            long startTimeMillis, long durationNanos, int status, Throwable error, int attempts) {
+        this.context = context;
+        this.parentSpanId = parentSpanId;
+        this.actionClass = actionClass;
+        this.request = request;
+        this.startTimeMillis = startTimeMillis;
+        this.durationNanos = durationNanos;
+        this.status = status;
+        this.error = error;
+        this.attempts = attempts;
+    }
+
+    /**
+     * @return context of this span, which was propagated with request
+     */
+    public TraceContext getContext() {
+        return context;
+    }
+
+    /**
+     * @return span id of parent or {@code null} if it's the root span of trace
+     */
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    public Class getActionClass() {
+        return actionClass;
+    }
+
+    /**
+     * @return traced request or {@code null} if action failed to build it
+     */
+    public Request getRequest() {
+        return request;
+    }
+
+    /**
+     * @return wall clock time of span start
+     */
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return status of the last response or 0 if there is no response
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return error action failed with or {@code null} if it succeeded
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return number of request attempts, 0 if request is not sent, e.g. response is cached
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    @Override public String toString() {
+        return "Span{" +
+                "context=" + context +
+                ", parentSpanId=" + parentSpanId +
+                ", actionClass=" + actionClass.getName() +
+                ", durationNanos=" + durationNanos +
+                ", status=" + status +
+                ", error=" + error +
+                ", attempts=" + attempts +
+                '}';
+    }
+}
@@ -0,0 +1,10 @@
+package io.techery.janet.http.tracing;
+
+/**
+ * Receives finished spans of sampled actions, e.g. to pass them to tracing backend.
+ * It's called on the thread which completes action, so it should not block.
+ */
+public interface SpanReporter {
+
+    void report(Span span);
+}
@@ -0,0 +1,167 @@
+package io.techery.janet.http.tracing;
+
+/**
+ * Immutable <a href="https://www.w3.org/TR/trace-context/">W3C Trace Context</a>: 128-bit trace id, 64-bit span id,
+ * sampled flag and opaque vendor {@code tracestate}.
+ * Its {@code traceparent} header value is formatted once and reused.
+ */
+public final class TraceContext {
+
+    private static final String VERSION = "00";
+    private static final int TRACEPARENT_LENGTH = 55;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final long traceIdHigh;
+    private final long traceIdLow;
+    private final long spanId;
+    private final boolean sampled;
+    private final String traceState;
+    private volatile String traceparent;
+
+    /**
+     * @param traceState {@code tracestate} header value or {@code null}
+     */
+    public TraceContext(long traceIdHigh, long traceIdLow, long spanId, boolean sampled, String traceState) {
+        if (traceIdHigh == 0 && traceIdLow == 0) {
+            throw new IllegalArgumentException("trace id is zero");
+        }
+        if (spanId == 0) {
+            throw new IllegalArgumentException("span id is zero");
+        }
+        this.traceIdHigh = traceIdHigh;
+        this.traceIdLow = traceIdLow;
+        this.spanId = spanId;
+        this.sampled = sampled;
+        this.traceState = traceState;
+    }
+
+    /**
+     * Parses context of incoming request, e.g. to continue its trace with actions sent while handling it
+     *
+     * @param traceState {@code tracestate} header value or {@code null}
+     * @return context or {@code null} if {@code traceparent} is missing or malformed
+     */
+    public static TraceContext parse(String traceparent, String traceState) {
+        if (traceparent == null || traceparent.length() < TRACEPARENT_LENGTH) return null;
+        String version = traceparent.substring(0, 2);
+        if (!isHex(traceparent, 0, 2) || "ff".equals(version)) return null;
+        // future versions could append fields, but version 00 can't
+        if (traceparent.length() > TRACEPARENT_LENGTH && (VERSION.equals(version) || traceparent.charAt(TRACEPARENT_LENGTH) != '-')) {
+            return null;
+        }
+        if (traceparent.charAt(2) != '-' || traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-') return null;
+        if (!isHex(traceparent, 3, 35) || !isHex(traceparent, 36, 52) || !isHex(traceparent, 53, 55)) return null;
+        long traceIdHigh = parseHex(traceparent, 3, 19);
+        long traceIdLow = parseHex(traceparent, 19, 35);
+        long spanId = parseHex(traceparent, 36, 52);
+        long flags = parseHex(traceparent, 53, 55);
+        if ((traceIdHigh == 0 && traceIdLow == 0) || spanId == 0) return null;
+        return new TraceContext(traceIdHigh, traceIdLow, spanId, (flags & 1) != 0, traceState);
+    }
+
+    /**
+     * @return context of the same trace with new span id
+     */
+    public TraceContext child(long spanId) {
+        return new TraceContext(traceIdHigh, traceIdLow, spanId, sampled, traceState);
+    }
+
+    /**
+     * @return 32 lowercase hex chars
+     */
+    public String getTraceId() {
+        char[] chars = new char[32];
+        writeHex(chars, 0, traceIdHigh);
+        writeHex(chars, 16, traceIdLow);
+        return new String(chars);
+    }
+
+    /**
+     * @return 16 lowercase hex chars
+     */
+    public String getSpanId() {
+        char[] chars = new char[16];
+        writeHex(chars, 0, spanId);
+        return new String(chars);
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    public String getTraceState() {
+        return traceState;
+    }
+
+    /**
+     * @return value of {@code traceparent} header, e.g. {@code 00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01}
+     */
+    public String toTraceparent() {
+        String traceparent = this.traceparent;
+        if (traceparent == null) {
+            char[] chars = new char[TRACEPARENT_LENGTH];
+            chars[0] = '0';
+            chars[1] = '0';
+            chars[2] = '-';
+            writeHex(chars, 3, traceIdHigh);
+            writeHex(chars, 19, traceIdLow);
+            chars[35] = '-';
+            writeHex(chars, 36, spanId);
+            chars[52] = '-';
+            chars[53] = '0';
+            chars[54] = sampled ? '1' : '0';
+            this.traceparent = traceparent = new String(chars);
+        }
+        return traceparent;
+    }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TraceContext)) return false;
+        TraceContext that = (TraceContext) o;
+        return traceIdHigh == that.traceIdHigh && traceIdLow == that.traceIdLow && spanId == that.spanId
+                && sampled == that.sampled;
+    }
+
+    @Override public int hashCode() {
+        int result = (int) (traceIdHigh ^ (traceIdHigh >>> 32));
+        result = 31 * result + (int) (traceIdLow ^ (traceIdLow >>> 32));
+        result = 31 * result + (int) (spanId ^ (spanId >>> 32));
+        return 31 * result + (sampled ? 1 : 0);
+    }
+
+    @Override public String toString() {
+        return toTraceparent();
+    }
+
+    private static void writeHex(char[] chars, int offset, long value) {
+        for (int i = 15; i >= 0; i--) {
+            chars[offset + i] = HEX[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * @return value of up to 16 lowercase hex chars, which must be checked with {@linkplain #isHex(String, int, int)}
+     */
+    private static long parseHex(String value, int start, int end) {
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            result = (result << 4) | hexDigit(value.charAt(i));
+        }
+        return result;
+    }
+
+    private static boolean isHex(String value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (hexDigit(value.charAt(i)) == -1) return false;
+        }
+        return true;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        return -1;
+    }
+}
@@ -0,0 +1,40 @@
+package io.techery.janet.http.tracing;
+
+import io.techery.janet.http.TracedAction;
+
+/**
+ * Configuration of W3C trace context propagation of {@linkplain io.techery.janet.HttpActionService HttpActionService}.
+ * <p>
+ * Action which continues a trace, see {@linkplain TracedAction}, follows sampling decision of its parent,
+ * other actions start new traces sampled with {@code sampleRate} probability.
+ * Request of sampled action gets {@code traceparent} (and {@code tracestate}) header of a new span, which is reported
+ * when action ends. Request of unsampled action with parent gets headers of the parent as is,
+ * request of unsampled root action is sent without them, so it pays for a single random number at most.
+ */
+public final class TracingPolicy {
+
+    private final double sampleRate;
+    private final SpanReporter reporter;
+
+    /**
+     * @param sampleRate probability in [0, 1] that new trace is sampled
+     */
+    public TracingPolicy(double sampleRate, SpanReporter reporter) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate must be in [0, 1]");
+        }
+        if (reporter == null) {
+            throw new IllegalArgumentException("reporter == null");
+        }
+        this.sampleRate = sampleRate;
+        this.reporter = reporter;
+    }
+
+    public double sampleRate() {
+        return sampleRate;
+    }
+
+    public SpanReporter reporter() {
+        return reporter;
+    }
+}
@@ -1,16 +1,113 @@
 package io.techery.janet.http.utils;
 
 import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
+import io.techery.janet.body.ActionBody;
+import io.techery.janet.body.BytesArrayBody;
+import io.techery.janet.body.FileBody;
+import io.techery.janet.http.model.FormUrlEncodedRequestBody;
+import io.techery.janet.http.model.MimeOverridingTypedOutput;
+import io.techery.janet.http.model.MultipartRequestBody;
 import io.techery.janet.http.model.Request;
 
 public class RequestUtils {
 
     public static final Object TAG_CANCELED = new Object();
 
+    private static final AtomicReferenceFieldUpdater<Request, Object> TAG_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(Request.class, Object.class, "tag");
+
     public static void throwIfCanceled(Request request) throws IOException {
         if (request.tag == TAG_CANCELED) {
             throw new IOException("Request is canceled");
         }
     }
+
+    /**
+     * Atomically marks request with client's cancellation handle, e.g. its call, unless request is canceled already.
+     * Along with {@linkplain #markCanceled(Request)} it guarantees that request canceled before this point
+     * isn't sent and request canceled after it is aborted with the handle.
+     *
+     * @throws IOException if request is canceled
+     */
+    public static void attachTag(Request request, Object tag) throws IOException {
+        for (; ; ) {
+            Object current = request.tag;
+            if (current == TAG_CANCELED) {
+                throw new IOException("Request is canceled");
+            }
+            if (TAG_UPDATER.compareAndSet(request, current, tag)) return;
+        }
+    }
+
+    /**
+     * Marks request as canceled, so it can't be attached anymore
+     *
+     * @return handle attached by client or {@code null}
+     */
+    public static Object markCanceled(Request request) {
+        Object tag = TAG_UPDATER.getAndSet(request, TAG_CANCELED);
+        return tag != TAG_CANCELED ? tag : null;
+    }
+
+    /**
+     * @param defaultMillis timeout of client, 0 means there is no timeout
+     * @return timeout of request I/O: default one or time left until request deadline if it's shorter
+     * @throws SocketTimeoutException if deadline is passed
+     */
+    public static int getTimeoutMillis(Request request, int defaultMillis) throws SocketTimeoutException {
+        long deadlineNanos = request.getDeadlineNanos();
+        if (deadlineNanos == 0) return defaultMillis;
+        long leftMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        if (leftMillis <= 0) {
+            throw new SocketTimeoutException("Request deadline is exceeded");
+        }
+        return defaultMillis > 0 && defaultMillis < leftMillis ? defaultMillis : (int) Math.min(leftMillis, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return host with port if it's set, e.g. {@code api.example.com:8080}, or {@code null} if url is malformed
+     */
+    public static String getHost(String url) {
+        try {
+            return new URL(url).getAuthority();
+        } catch (MalformedURLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return {@code true} if body content could be written more than once, e.g. for request retry
+     */
+    public static boolean isReplayable(ActionBody body) {
+        if (body == null || body instanceof BytesArrayBody || body instanceof FileBody
+                || body instanceof FormUrlEncodedRequestBody) {
+            return true;
+        }
+        if (body instanceof MimeOverridingTypedOutput) {
+            return isReplayable(((MimeOverridingTypedOutput) body).getDelegate());
+        }
+        if (body instanceof MultipartRequestBody) {
+            return ((MultipartRequestBody) body).isReplayable();
+        }
+        return false;
+    }
+
+    /**
+     * Reads request body into memory if it can't be written more than once, see {@linkplain #isReplayable(ActionBody)}
+     */
+    public static Request replayable(Request request) throws IOException {
+        ActionBody body = request.getBody();
+        if (isReplayable(body)) {
+            return request;
+        }
+        return new Request(request.getMethod(), request.getUrl(), request.getHeaders(),
+                new BytesArrayBody(body.mimeType(), ResponseUtils.readAll(body)), request.getDeadlineNanos()
+        );
+    }
 }
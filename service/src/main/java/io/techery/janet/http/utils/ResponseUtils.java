@@ -0,0 +1,160 @@
+package io.techery.janet.http.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import io.techery.janet.body.ActionBody;
+import io.techery.janet.body.BytesArrayBody;
+import io.techery.janet.body.util.StreamUtil;
+import io.techery.janet.http.ResponseBodyConsumer;
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.Response;
+
+public class ResponseUtils {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * Reads response body into memory, so the returned response could be read multiple times.
+     */
+    public static Response buffer(Response response) throws IOException {
+        ActionBody body = response.getBody();
+        if (body == null || body instanceof BytesArrayBody) {
+            return response;
+        }
+        return new Response(response.getUrl(), response.getStatus(), response.getReason(), response.getHeaders(),
+                new BytesArrayBody(body.mimeType(), readAll(body))
+        );
+    }
+
+    /**
+     * Releases response body which won't be read, e.g. of response to retried request.
+     */
+    public static void closeQuietly(Response response) {
+        if (response == null || response.getBody() == null) return;
+        try {
+            response.getBody().getContent().close();
+        } catch (Throwable ignored) {}
+    }
+
+    /**
+     * @return delay of {@code Retry-After} header, given either in seconds or as HTTP-date, or -1 if it's absent or malformed
+     */
+    public static long getRetryAfterMillis(Response response) {
+        for (Header header : response.getHeaders()) {
+            if (!"Retry-After".equalsIgnoreCase(header.getName()) || header.getValue() == null) continue;
+            String value = header.getValue().trim();
+            try {
+                long seconds = Long.parseLong(value);
+                return seconds < 0 ? -1 : seconds * 1000L;
+            } catch (NumberFormatException ignored) {}
+            SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("GMT"));
+            try {
+                return Math.max(0, format.parse(value).getTime() - System.currentTimeMillis());
+            } catch (ParseException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Delivers body to consumer in network sized chunks, reading the next one only after the previous is consumed.
+     */
+    public static void stream(ActionBody body, ResponseBodyConsumer consumer) throws IOException {
+        if (body == null) {
+            consumer.onStart(null, 0);
+            consumer.onComplete();
+            return;
+        }
+        InputStream in = body.getContent();
+        try {
+            consumer.onStart(body.mimeType(), body.length());
+            byte[] buffer = new byte[StreamUtil.NETWORK_CHUNK_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                consumer.onChunk(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        consumer.onComplete();
+    }
+
+    /**
+     * Writes body to file in network sized chunks, so it's never held in memory as a whole.
+     * Body is written to temporary file next to the given one, which is replaced with it only once body is read completely.
+     *
+     * @param file destination or {@code null} to write body to new temporary file
+     * @return file with body or the given one if there is no body
+     */
+    public static File writeTo(ActionBody body, File file) throws IOException {
+        if (body == null) return file;
+        InputStream in = body.getContent();
+        File tempFile = null;
+        boolean written = false;
+        try {
+            tempFile = file != null
+                    ? File.createTempFile("janet", ".download", file.getAbsoluteFile().getParentFile())
+                    : File.createTempFile("janet", ".response");
+            FileOutputStream out = new FileOutputStream(tempFile);
+            try {
+                transfer(in, out);
+            } finally {
+                out.close();
+            }
+            if (file != null && !tempFile.renameTo(file)) {
+                // rename doesn't replace existing file on some platforms
+                if (!file.delete() || !tempFile.renameTo(file)) {
+                    throw new IOException("Can't move " + tempFile + " to " + file);
+                }
+            }
+            written = true;
+            return file != null ? file : tempFile;
+        } finally {
+            in.close();
+            if (!written && tempFile != null) tempFile.delete();
+        }
+    }
+
+    private static void transfer(InputStream in, FileOutputStream out) throws IOException {
+        if (in instanceof FileInputStream) {
+            // both ends are channels, so the copy is left to the OS
+            FileChannel source = ((FileInputStream) in).getChannel();
+            FileChannel channel = out.getChannel();
+            long position = 0;
+            long transferred;
+            while ((transferred = channel.transferFrom(source, position, StreamUtil.NETWORK_CHUNK_SIZE * 16L)) > 0) {
+                position += transferred;
+            }
+        } else {
+            StreamUtil.writeAll(in, out, StreamUtil.NETWORK_CHUNK_SIZE);
+        }
+    }
+
+    public static byte[] readAll(ActionBody body) throws IOException {
+        long length = body.length();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length > 0 ? (int) length : BUFFER_SIZE);
+        InputStream in = body.getContent();
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+}
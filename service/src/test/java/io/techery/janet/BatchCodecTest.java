@@ -0,0 +1,118 @@
+package io.techery.janet;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.techery.janet.body.BytesArrayBody;
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.MultipartRequestBody;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+import io.techery.janet.http.utils.ResponseUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchCodecTest {
+
+    private final List<Request> requests = Arrays.asList(
+            new Request("GET", "http://host/users?page=2", Collections.singletonList(new Header("Accept", "application/json")), null),
+            new Request("POST", "http://host:8080/users", Collections.<Header>emptyList(),
+                    new BytesArrayBody("application/json", "{\"name\":\"john\"}".getBytes()))
+    );
+
+    @Test public void requestsAreEncodedAsHttpPartsInOrder() throws IOException {
+        MultipartRequestBody body = BatchCodec.encode(requests);
+        String content = content(body);
+
+        assertTrue(body.mimeType().startsWith("multipart/mixed; boundary="));
+        int first = content.indexOf("Content-ID: <0>");
+        int second = content.indexOf("Content-ID: <1>");
+        assertTrue(first != -1 && second > first);
+        assertTrue(content.contains("Content-Type: application/http"));
+        assertTrue(content.contains("GET /users?page=2 HTTP/1.1\r\nHost: host\r\nAccept: application/json\r\n\r\n"));
+        assertTrue(content.contains("POST /users HTTP/1.1\r\nHost: host:8080\r\n"
+                + "Content-Type: application/json\r\nContent-Length: 15\r\n\r\n{\"name\":\"john\"}"));
+    }
+
+    @Test public void responsesAreDecodedByContentId() throws IOException {
+        // server answers in its own order
+        Response batchResponse = batchResponse(
+                part("response-1", "HTTP/1.1 201 Created\r\nContent-Type: application/json\r\nLocation: /users/7\r\n\r\n{\"id\":7}"),
+                part("response-0", "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\n\r\n[]")
+        );
+        Response[] responses = BatchCodec.decode(batchResponse, requests);
+
+        assertEquals(2, responses.length);
+        assertEquals(200, responses[0].getStatus());
+        assertEquals("OK", responses[0].getReason());
+        assertEquals("http://host/users?page=2", responses[0].getUrl());
+        assertEquals("[]", new String(ResponseUtils.readAll(responses[0].getBody()), "UTF-8"));
+        assertEquals(201, responses[1].getStatus());
+        assertEquals("Created", responses[1].getReason());
+        assertEquals("application/json", responses[1].getBody().mimeType());
+        assertEquals("{\"id\":7}", new String(ResponseUtils.readAll(responses[1].getBody()), "UTF-8"));
+        assertEquals("/users/7", headerValue(responses[1].getHeaders(), "Location"));
+    }
+
+    @Test public void responseWithoutBodyIsDecoded() throws IOException {
+        Response[] responses = BatchCodec.decode(batchResponse(part("0", "HTTP/1.1 204 No Content")), requests);
+
+        assertEquals(204, responses[0].getStatus());
+        assertEquals(0, responses[0].getBody().length());
+        assertNull(responses[1]);
+    }
+
+    @Test public void malformedStatusLineFailsDecoding() throws IOException {
+        try {
+            BatchCodec.decode(batchResponse(part("0", "HTTP/1.1 OK\r\n\r\n")), requests);
+            fail();
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("Malformed status line"));
+        }
+    }
+
+    @Test(expected = IOException.class) public void notMultipartResponseFailsDecoding() throws IOException {
+        Response response = new Response("http://host/batch", 200, "OK", Collections.<Header>emptyList(),
+                new BytesArrayBody("application/json", "{}".getBytes()));
+        BatchCodec.decode(response, requests);
+    }
+
+    private static MultipartRequestBody.PartBody part(String contentId, String http) throws IOException {
+        return new MultipartRequestBody.PartBody.Builder()
+                .setBody(new BytesArrayBody(BatchCodec.MIMETYPE_HTTP, http.getBytes("UTF-8")))
+                .addHeader("X-Content-Id", contentId)
+                .build();
+    }
+
+    private static Response batchResponse(MultipartRequestBody.PartBody... parts) throws IOException {
+        MultipartRequestBody body = new MultipartRequestBody(MultipartRequestBody.MIMETYPE_MIXED);
+        for (MultipartRequestBody.PartBody part : parts) {
+            body.addPart(headerValue(part.headers, "X-Content-Id"), MultipartRequestBody.DEFAULT_TRANSFER_ENCODING, part);
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        body.writeContentTo(content);
+        return new Response("http://host/batch", 200, "OK", Collections.<Header>emptyList(),
+                new BytesArrayBody(body.mimeType(), content.toByteArray()));
+    }
+
+    private static String content(MultipartRequestBody body) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        body.writeContentTo(content);
+        return content.toString("UTF-8");
+    }
+
+    private static String headerValue(List<Header> headers, String name) {
+        for (Header header : headers) {
+            if (name.equalsIgnoreCase(header.getName())) return header.getValue();
+        }
+        return null;
+    }
+}
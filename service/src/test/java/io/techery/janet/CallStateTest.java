@@ -0,0 +1,103 @@
+package io.techery.janet;
+
+import org.junit.Test;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CallStateTest {
+
+    @Test public void requestIsNotSentOnceCanceled() {
+        CallState state = new CallState();
+
+        assertEquals(CallState.PENDING, state.cancel());
+        assertTrue(state.isCanceled());
+        assertFalse(state.transition(CallState.PENDING, CallState.SENDING));
+        assertFalse(state.reset());
+        assertFalse(state.finish());
+    }
+
+    @Test public void cancelReportsStateItInterrupted() {
+        CallState state = new CallState();
+        assertTrue(state.transition(CallState.PENDING, CallState.SENDING));
+
+        assertEquals(CallState.SENDING, state.cancel());
+        assertEquals(CallState.CANCELED, state.cancel());
+    }
+
+    @Test public void finishedStateIsNotCanceled() {
+        CallState state = new CallState();
+        state.transition(CallState.PENDING, CallState.SENDING);
+        state.transition(CallState.SENDING, CallState.RECEIVING);
+
+        assertTrue(state.finish());
+        assertEquals(CallState.FINISHED, state.cancel());
+        assertFalse(state.isCanceled());
+        assertFalse(state.finish());
+        assertFalse(state.reset());
+    }
+
+    @Test public void retryResetsStateToPending() {
+        CallState state = new CallState();
+        state.transition(CallState.PENDING, CallState.SENDING);
+        state.transition(CallState.SENDING, CallState.RECEIVING);
+
+        assertTrue(state.reset());
+        assertTrue(state.transition(CallState.PENDING, CallState.SENDING));
+    }
+
+    @Test public void exactlyOneOfCancelAndFinishWins() throws Exception {
+        for (int i = 0; i < 10000; i++) {
+            final CallState state = new CallState();
+            state.transition(CallState.PENDING, CallState.SENDING);
+            final CyclicBarrier barrier = new CyclicBarrier(2);
+            final AtomicInteger finished = new AtomicInteger();
+            Thread finisher = new Thread(new Runnable() {
+                @Override public void run() {
+                    await(barrier);
+                    if (state.finish()) finished.incrementAndGet();
+                }
+            });
+            finisher.start();
+            await(barrier);
+            int previous = state.cancel();
+            finisher.join();
+
+            boolean canceled = previous != CallState.FINISHED;
+            assertEquals("iteration " + i, canceled ? 0 : 1, finished.get());
+            assertEquals(canceled, state.isCanceled());
+        }
+    }
+
+    @Test public void onlyOneOfConcurrentFinishesDeliversResult() throws Exception {
+        for (int i = 0; i < 10000; i++) {
+            final CallState state = new CallState();
+            final CyclicBarrier barrier = new CyclicBarrier(2);
+            final AtomicInteger finished = new AtomicInteger();
+            Runnable finish = new Runnable() {
+                @Override public void run() {
+                    await(barrier);
+                    if (state.finish()) finished.incrementAndGet();
+                }
+            };
+            Thread thread = new Thread(finish);
+            thread.start();
+            finish.run();
+            thread.join();
+
+            assertEquals("iteration " + i, 1, finished.get());
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package io.techery.janet;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.techery.janet.http.AsyncHttpClient;
+import io.techery.janet.http.circuitbreaker.CircuitBreakerPolicy;
+import io.techery.janet.http.exception.CircuitBreakerOpenException;
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private final RecordingClient client = new RecordingClient();
+    private final List<Object> results = new ArrayList<Object>();
+
+    @Test public void circuitOpensOnceFailureRateIsReached() {
+        CircuitBreaker breaker = breaker(new CircuitBreakerPolicy.Builder().window(4, 4).failureRateThreshold(0.5f));
+        call(breaker, "http://a/1", 200);
+        call(breaker, "http://a/2", 500);
+        call(breaker, "http://a/3", 200);
+        // the 4th recorded call, rate is calculated from now on
+        call(breaker, "http://a/4", 503);
+
+        enqueue(breaker, "http://a/5");
+        assertTrue(lastResult() instanceof CircuitBreakerOpenException);
+        assertEquals("a", ((CircuitBreakerOpenException) lastResult()).getHost());
+        assertEquals(4, client.sent.size());
+    }
+
+    @Test public void circuitStaysClosedBelowMinimumCalls() {
+        CircuitBreaker breaker = breaker(new CircuitBreakerPolicy.Builder().window(10, 5));
+        for (int i = 0; i < 4; i++) {
+            fail(breaker, "http://a/" + i);
+        }
+
+        enqueue(breaker, "http://a/next");
+        assertEquals(5, client.sent.size());
+    }
+
+    @Test public void failuresOutOfWindowAreForgotten() {
+        CircuitBreaker breaker = breaker(new CircuitBreakerPolicy.Builder().window(4, 4).failureRateThreshold(0.75f));
+        fail(breaker, "http://a/1");
+        fail(breaker, "http://a/2");
+        call(breaker, "http://a/3", 200);
+        call(breaker, "http://a/4", 200);
+        // window is [fail, 200, 200, 200] and then [200, 200, 200, fail]
+        call(breaker, "http://a/5", 200);
+        fail(breaker, "http://a/6");
+
+        enqueue(breaker, "http://a/7");
+        assertEquals(7, client.sent.size());
+    }
+
+    @Test public void circuitOpensOnSlowCalls() throws InterruptedException {
+        CircuitBreaker breaker = breaker(new CircuitBreakerPolicy.Builder().window(2, 2).slowCalls(20, 1f));
+        for (int i = 0; i < 2; i++) {
+            enqueue(breaker, "http://a/" + i);
+            Thread.sleep(40);
+            client.respond(200);
+        }
+
+        enqueue(breaker, "http://a/next");
+        assertTrue(lastResult() instanceof CircuitBreakerOpenException);
+    }
+
+    @Test public void openCircuitPermitsTrialCallsAfterOpenDuration() throws InterruptedException {
+        CircuitBreaker breaker = breaker(new CircuitBreakerPolicy.Builder().window(2, 2).openDurationMillis(50).halfOpenCalls(2));
+        open(breaker);
+        Thread.sleep(80);
+
+        enqueue(breaker, "http://a/trial1");
+        enqueue(breaker, "http://a/trial2");
+        enqueue(breaker, "http://a/rejected");
+        assertEquals(4, client.sent.size());
+        assertTrue(lastResult() instanceof CircuitBreakerOpenException);
+        // successful trials close circuit
+        client.respond(200);
+        client.respond(200);
+        enqueue(breaker, "http://a/closed1");
+        enqueue(breaker, "http://a/closed2");
+        enqueue(breaker, "http://a/closed3");
+        assertEquals(7, client.sent.size());
+    }
+
+    @Test public void failedTrialCallsOpenCircuitAgain() throws InterruptedException {
+        CircuitBreaker breaker = breaker(new CircuitBreakerPolicy.Builder().window(2, 2).openDurationMillis(50).halfOpenCalls(1));
+        open(breaker);
+        Thread.sleep(80);
+
+        fail(breaker, "http://a/trial");
+        enqueue(breaker, "http://a/rejected");
+        assertTrue(lastResult() instanceof CircuitBreakerOpenException);
+    }
+
+    @Test public void canceledTrialCallReleasesItsPermit() throws InterruptedException {
+        CircuitBreaker breaker = breaker(new CircuitBreakerPolicy.Builder().window(2, 2).openDurationMillis(50).halfOpenCalls(1));
+        open(breaker);
+        Thread.sleep(80);
+        Request trial = enqueue(breaker, "http://a/trial");
+        breaker.cancel(trial);
+
+        enqueue(breaker, "http://a/next");
+        assertEquals(4, client.sent.size());
+        assertEquals("http://a/next", client.lastRequest().getUrl());
+    }
+
+    @Test public void circuitsOfHostsAreIndependent() {
+        CircuitBreaker breaker = breaker(new CircuitBreakerPolicy.Builder().window(2, 2));
+        open(breaker);
+
+        enqueue(breaker, "http://b/1");
+        assertEquals(3, client.sent.size());
+        assertEquals("http://b/1", client.lastRequest().getUrl());
+    }
+
+    private CircuitBreaker breaker(CircuitBreakerPolicy.Builder policy) {
+        return new CircuitBreaker(client, policy.build());
+    }
+
+    /**
+     * Opens circuit of host {@code a} with window of 2 calls
+     */
+    private void open(CircuitBreaker breaker) {
+        fail(breaker, "http://a/failed1");
+        fail(breaker, "http://a/failed2");
+        enqueue(breaker, "http://a/open");
+        assertTrue(lastResult() instanceof CircuitBreakerOpenException);
+    }
+
+    private void call(CircuitBreaker breaker, String url, int status) {
+        enqueue(breaker, url);
+        client.respond(status);
+    }
+
+    private void fail(CircuitBreaker breaker, String url) {
+        enqueue(breaker, url);
+        client.fail(new IOException("failed"));
+    }
+
+    private Request enqueue(CircuitBreaker breaker, String url) {
+        Request request = new Request("GET", url, Collections.<Header>emptyList(), null);
+        breaker.enqueue(request, null, new AsyncHttpClient.ResponseCallback() {
+            @Override public void onResponse(Response response) {
+                results.add(response);
+            }
+
+            @Override public void onFailure(Throwable error) {
+                results.add(error);
+            }
+        });
+        return request;
+    }
+
+    private Object lastResult() {
+        return results.get(results.size() - 1);
+    }
+}
@@ -0,0 +1,75 @@
+package io.techery.janet;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import io.techery.janet.http.AsyncHttpClient;
+import io.techery.janet.http.HttpClient;
+import io.techery.janet.http.limit.ConcurrencyLimitPolicy;
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ConcurrencyLimiterTest {
+
+    private final RecordingClient client = new RecordingClient();
+    private final ConcurrencyLimitPolicy policy = new ConcurrencyLimitPolicy.Builder().limit(1, 1, 1).build();
+
+    @Test public void requestAboveLimitWaitsForInFlightOne() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(client, policy);
+        limiter.enqueue(get("http://host/1"), new BatchableCallback(false), NO_OP);
+        Request second = get("http://host/2");
+        limiter.enqueue(second, new BatchableCallback(false), NO_OP);
+        assertEquals(1, client.sent.size());
+        assertEquals(1, limiter.getQueueDepth("host"));
+
+        client.respond(200);
+
+        assertSame(second, client.lastRequest());
+    }
+
+    @Test public void canceledRequestFreesSlotWithoutCallback() {
+        // batcher drops canceled request from pending batch and never calls back on it
+        RequestBatcher batcher = new RequestBatcher(client, "http://host/batch", 60000, 2);
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(batcher, policy);
+        Request batched = get("http://host/1");
+        limiter.enqueue(batched, new BatchableCallback(true), NO_OP);
+        assertEquals(0, client.sent.size());
+
+        limiter.cancel(batched);
+        Request next = get("http://host/2");
+        limiter.enqueue(next, new BatchableCallback(false), NO_OP);
+
+        assertEquals(1, client.sent.size());
+        assertSame(next, client.lastRequest());
+    }
+
+    private static Request get(String url) {
+        return new Request("GET", url, Collections.<Header>emptyList(), null);
+    }
+
+    private static final AsyncHttpClient.ResponseCallback NO_OP = new AsyncHttpClient.ResponseCallback() {
+        @Override public void onResponse(Response response) {}
+
+        @Override public void onFailure(Throwable error) {}
+    };
+
+    private static final class BatchableCallback implements HttpClient.RequestCallback, RequestBatcher.BatchableCallback {
+
+        private final boolean batchable;
+
+        private BatchableCallback(boolean batchable) {
+            this.batchable = batchable;
+        }
+
+        @Override public boolean isBatchable() {
+            return batchable;
+        }
+
+        @Override public void onProgress(int progress) {}
+    }
+}
@@ -0,0 +1,80 @@
+package io.techery.janet;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.techery.janet.http.AsyncHttpClient;
+import io.techery.janet.http.HttpClient;
+import io.techery.janet.http.HttpInterceptor;
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InterceptorChainTest {
+
+    private final RecordingClient client = new RecordingClient();
+    private final List<Runnable> pendingInterceptions = new ArrayList<Runnable>();
+    /** interceptor which passes request on only when test tells it to */
+    private final HttpInterceptor asyncInterceptor = new HttpInterceptor() {
+        @Override public void intercept(final Request request, final Chain chain, final AsyncHttpClient.ResponseCallback callback) {
+            pendingInterceptions.add(new Runnable() {
+                @Override public void run() {
+                    chain.proceed(request, callback);
+                }
+            });
+        }
+    };
+    private final InterceptorChain chain = new InterceptorChain(client, Collections.singletonList(asyncInterceptor));
+
+    @Test public void requestIsSentAfterInterceptors() {
+        RecordingCallback callback = new RecordingCallback();
+        chain.enqueue(get(), NO_PROGRESS, callback);
+        pendingInterceptions.get(0).run();
+        client.respond(200);
+
+        assertEquals(1, client.sent.size());
+        assertEquals(1, callback.responses.size());
+    }
+
+    @Test public void requestCanceledDuringInterceptionFailsOnce() {
+        RecordingCallback callback = new RecordingCallback();
+        Request request = get();
+        chain.enqueue(request, NO_PROGRESS, callback);
+        chain.cancel(request);
+        pendingInterceptions.get(0).run();
+
+        assertEquals(0, client.sent.size());
+        assertEquals(1, callback.errors.size());
+        assertTrue(callback.errors.get(0) instanceof IOException);
+        assertEquals(0, callback.responses.size());
+    }
+
+    private static Request get() {
+        return new Request("GET", "http://host/1", Collections.<Header>emptyList(), null);
+    }
+
+    private static final HttpClient.RequestCallback NO_PROGRESS = new HttpClient.RequestCallback() {
+        @Override public void onProgress(int progress) {}
+    };
+
+    private static final class RecordingCallback implements AsyncHttpClient.ResponseCallback {
+
+        private final List<Response> responses = new ArrayList<Response>();
+        private final List<Throwable> errors = new ArrayList<Throwable>();
+
+        @Override public void onResponse(Response response) {
+            responses.add(response);
+        }
+
+        @Override public void onFailure(Throwable error) {
+            errors.add(error);
+        }
+    }
+}
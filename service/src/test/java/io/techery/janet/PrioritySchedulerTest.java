@@ -0,0 +1,191 @@
+package io.techery.janet;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.techery.janet.http.annotations.HttpAction.Priority;
+import io.techery.janet.http.exception.LoadSheddingException;
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.Request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PrioritySchedulerTest {
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+    @Test public void requestsRunImmediatelyUpToLimit() {
+        PriorityScheduler scheduler = new PriorityScheduler(2, 10);
+        submit(scheduler, "1", Priority.NORMAL);
+        submit(scheduler, "2", Priority.NORMAL);
+        submit(scheduler, "3", Priority.NORMAL);
+
+        assertEquals("[run 1, run 2]", events.toString());
+        assertEquals(1, scheduler.getQueueSize());
+    }
+
+    @Test public void queuedRequestsRunByPriorityThenBySubmission() {
+        PriorityScheduler scheduler = new PriorityScheduler(1, 10);
+        Request running = submit(scheduler, "running", Priority.NORMAL).request;
+        submit(scheduler, "low", Priority.LOW);
+        submit(scheduler, "normal1", Priority.NORMAL);
+        submit(scheduler, "high", Priority.HIGH);
+        submit(scheduler, "normal2", Priority.NORMAL);
+        events.clear();
+
+        Request finished = running;
+        for (String expected : new String[]{"/high", "/normal1", "/normal2", "/low"}) {
+            PriorityScheduler.Task next = scheduler.finish(finished);
+            finished = ((RecordingTask) next).request;
+            assertEquals(expected, finished.getUrl());
+        }
+        assertNull(scheduler.finish(finished));
+    }
+
+    @Test public void lowestPriorityQueuedRequestIsShedOnOverflow() {
+        PriorityScheduler scheduler = new PriorityScheduler(1, 1);
+        submit(scheduler, "running", Priority.NORMAL);
+        submit(scheduler, "low", Priority.LOW);
+        submit(scheduler, "high", Priority.HIGH);
+
+        assertEquals("[run running, reject low LoadSheddingException]", events.toString());
+        assertEquals(1, scheduler.getQueueSize());
+    }
+
+    @Test public void submittedRequestIsShedIfItsPriorityIsNotHigher() {
+        PriorityScheduler scheduler = new PriorityScheduler(1, 1);
+        submit(scheduler, "running", Priority.NORMAL);
+        submit(scheduler, "queued", Priority.NORMAL);
+        submit(scheduler, "submitted", Priority.NORMAL);
+
+        assertEquals("[run running, reject submitted LoadSheddingException]", events.toString());
+    }
+
+    @Test public void canceledRequestLeavesQueue() {
+        PriorityScheduler scheduler = new PriorityScheduler(1, 10);
+        Request running = submit(scheduler, "running", Priority.NORMAL).request;
+        Request queued = submit(scheduler, "queued", Priority.NORMAL).request;
+
+        assertTrue(scheduler.cancel(queued));
+        assertFalse(scheduler.cancel(queued));
+        assertNull(scheduler.finish(running));
+    }
+
+    @Test public void finishOfUnknownRequestDoesNotFreePlace() {
+        PriorityScheduler scheduler = new PriorityScheduler(1, 10);
+        Request running = submit(scheduler, "running", Priority.NORMAL).request;
+        RecordingTask queued = submit(scheduler, "queued", Priority.NORMAL);
+
+        assertNull(scheduler.finish(request("/other")));
+        assertSame(queued, scheduler.finish(running));
+    }
+
+    /**
+     * Blocking client completes request right in the task, which then runs the next queued one
+     */
+    @Test(timeout = 30000) public void queuedRequestsOfBlockingClientDoNotNestOnStack() throws Exception {
+        final PriorityScheduler scheduler = new PriorityScheduler(1, 100000);
+        final int queued = 50000;
+        final CountDownLatch firstStarted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final int[] completed = new int[1];
+        final int[] maxDepth = new int[1];
+        final Request first = request("/first");
+        Thread sender = new Thread(new Runnable() {
+            @Override public void run() {
+                scheduler.submit(first, Priority.NORMAL, new BlockingTask(scheduler, first, completed, maxDepth) {
+                    @Override void send() throws InterruptedException {
+                        firstStarted.countDown();
+                        release.await();
+                    }
+                });
+            }
+        });
+        sender.start();
+        assertTrue(firstStarted.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < queued; i++) {
+            Request request = request("/" + i);
+            scheduler.submit(request, Priority.NORMAL, new BlockingTask(scheduler, request, completed, maxDepth));
+        }
+        assertEquals(queued, scheduler.getQueueSize());
+        release.countDown();
+        sender.join();
+
+        assertEquals(queued + 1, completed[0]);
+        assertEquals(0, scheduler.getQueueSize());
+        assertTrue("stack depth " + maxDepth[0], maxDepth[0] < 50);
+    }
+
+    private RecordingTask submit(PriorityScheduler scheduler, String name, Priority priority) {
+        RecordingTask task = new RecordingTask(name, request("/" + name));
+        scheduler.submit(task.request, priority, task);
+        return task;
+    }
+
+    private static Request request(String url) {
+        return new Request("GET", url, Collections.<Header>emptyList(), null);
+    }
+
+    private final class RecordingTask implements PriorityScheduler.Task {
+
+        private final String name;
+        private final Request request;
+
+        private RecordingTask(String name, Request request) {
+            this.name = name;
+            this.request = request;
+        }
+
+        @Override public void run() {
+            events.add("run " + name);
+        }
+
+        @Override public void reject(Throwable error) {
+            events.add("reject " + name + " " + error.getClass().getSimpleName());
+            assertTrue(error instanceof LoadSheddingException);
+        }
+    }
+
+    private static class BlockingTask implements PriorityScheduler.Task {
+
+        private final PriorityScheduler scheduler;
+        private final Request request;
+        private final int[] completed;
+        private final int[] maxDepth;
+
+        private BlockingTask(PriorityScheduler scheduler, Request request, int[] completed, int[] maxDepth) {
+            this.scheduler = scheduler;
+            this.request = request;
+            this.completed = completed;
+            this.maxDepth = maxDepth;
+        }
+
+        void send() throws InterruptedException {}
+
+        @Override public void run() {
+            try {
+                send();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            completed[0]++;
+            maxDepth[0] = Math.max(maxDepth[0], Thread.currentThread().getStackTrace().length);
+            // response is delivered on the same thread, as by HttpActionService.ActionCall.onResponse
+            PriorityScheduler.Task next = scheduler.finish(request);
+            if (next != null) scheduler.execute(next);
+        }
+
+        @Override public void reject(Throwable error) {
+            throw new AssertionError(error);
+        }
+    }
+}
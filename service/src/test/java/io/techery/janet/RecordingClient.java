@@ -0,0 +1,95 @@
+package io.techery.janet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.techery.janet.http.AsyncHttpClient;
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+
+/**
+ * Client which records enqueued requests and answers them when test tells it to
+ */
+class RecordingClient implements AsyncHttpClient {
+
+    final List<Request> sent = Collections.synchronizedList(new ArrayList<Request>());
+    final List<Request> canceled = Collections.synchronizedList(new ArrayList<Request>());
+    private final List<Call> calls = new ArrayList<Call>();
+
+    @Override public Response execute(Request request, RequestCallback requestCallback) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override public void enqueue(Request request, RequestCallback requestCallback, ResponseCallback responseCallback) {
+        sent.add(request);
+        synchronized (calls) {
+            calls.add(new Call(request, requestCallback, responseCallback));
+        }
+    }
+
+    @Override public void cancel(Request request) {
+        canceled.add(request);
+        synchronized (calls) {
+            for (int i = 0; i < calls.size(); i++) {
+                if (calls.get(i).request == request) {
+                    calls.remove(i);
+                    return;
+                }
+            }
+        }
+    }
+
+    int pendingCount() {
+        synchronized (calls) {
+            return calls.size();
+        }
+    }
+
+    Request lastRequest() {
+        return sent.get(sent.size() - 1);
+    }
+
+    RequestCallback lastRequestCallback() {
+        synchronized (calls) {
+            return calls.get(calls.size() - 1).requestCallback;
+        }
+    }
+
+    /**
+     * Answers the eldest pending request
+     */
+    void respond(int status) {
+        Call call = poll();
+        call.responseCallback.onResponse(new Response(call.request.getUrl(), status, "", Collections.<Header>emptyList(), null));
+    }
+
+    void respond(Response response) {
+        poll().responseCallback.onResponse(response);
+    }
+
+    void fail(Throwable error) {
+        poll().responseCallback.onFailure(error);
+    }
+
+    private Call poll() {
+        synchronized (calls) {
+            if (calls.isEmpty()) throw new AssertionError("There is no pending request");
+            return calls.remove(0);
+        }
+    }
+
+    private static final class Call {
+        private final Request request;
+        private final RequestCallback requestCallback;
+        private final ResponseCallback responseCallback;
+
+        private Call(Request request, RequestCallback requestCallback, ResponseCallback responseCallback) {
+            this.request = request;
+            this.requestCallback = requestCallback;
+            this.responseCallback = responseCallback;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package io.techery.janet;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.techery.janet.body.ActionBody;
+import io.techery.janet.body.BytesArrayBody;
+import io.techery.janet.body.FileBody;
+import io.techery.janet.http.AsyncHttpClient;
+import io.techery.janet.http.HttpClient;
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class RequestBatcherTest {
+
+    private static final String BATCH_URL = "http://host/batch";
+
+    private final RecordingClient client = new RecordingClient();
+    private final RequestBatcher batcher = new RequestBatcher(client, BATCH_URL, 60000, 2);
+
+    @Test public void requestsToBatchHostAreSentAsOneRequest() {
+        enqueue(get("http://host/1"), new RecordingCallback(true));
+        assertEquals(0, client.sent.size());
+        enqueue(post("http://host/2", 10), new RecordingCallback(true));
+
+        assertEquals(1, client.sent.size());
+        assertEquals(BATCH_URL, client.lastRequest().getUrl());
+        assertEquals("POST", client.lastRequest().getMethod());
+    }
+
+    @Test public void requestsToOtherHostsAreSentAsIs() {
+        Request request = get("http://other/1");
+        enqueue(request, new RecordingCallback(true));
+
+        assertSame(request, client.lastRequest());
+    }
+
+    @Test public void requestsOfStreamedResponsesAreSentAsIs() {
+        Request request = get("http://host/1");
+        enqueue(request, new RecordingCallback(false));
+
+        assertSame(request, client.lastRequest());
+    }
+
+    @Test public void requestsWithoutBatchableCallbackAreSentAsIs() {
+        Request request = get("http://host/1");
+        enqueue(request, new HttpClient.RequestCallback() {
+            @Override public void onProgress(int progress) {}
+        });
+
+        assertSame(request, client.lastRequest());
+    }
+
+    @Test public void requestsWithDeadlineAreSentAsIs() {
+        Request request = new Request("GET", "http://host/1", Collections.<Header>emptyList(), null, System.nanoTime() + 1000000000L);
+        enqueue(request, new RecordingCallback(true));
+
+        assertSame(request, client.lastRequest());
+    }
+
+    @Test public void requestsWithLargeOrFileBodyAreSentAsIs() {
+        Request large = post("http://host/large", (int) RequestBatcher.MAX_BODY_LENGTH + 1);
+        Request file = new Request("POST", "http://host/file", Collections.<Header>emptyList(), new FileBody("text/plain", new File("body")));
+        Request unknownLength = new Request("POST", "http://host/chunked", Collections.<Header>emptyList(), new ActionBody("text/plain") {
+            @Override public long length() {
+                return -1;
+            }
+
+            @Override public InputStream getContent() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override public void writeContentTo(OutputStream os) {
+                throw new UnsupportedOperationException();
+            }
+        });
+        enqueue(large, new RecordingCallback(true));
+        enqueue(file, new RecordingCallback(true));
+        enqueue(unknownLength, new RecordingCallback(true));
+
+        assertEquals(3, client.sent.size());
+        assertSame(large, client.sent.get(0));
+        assertSame(file, client.sent.get(1));
+        assertSame(unknownLength, client.sent.get(2));
+    }
+
+    @Test public void progressOfBatchIsReportedToBatchedRequests() {
+        RecordingCallback first = new RecordingCallback(true);
+        RecordingCallback second = new RecordingCallback(true);
+        enqueue(get("http://host/1"), first);
+        enqueue(get("http://host/2"), second);
+
+        HttpClient.RequestCallback batchCallback = client.lastRequestCallback();
+        batchCallback.onProgress(40);
+        ((HttpClient.DownloadProgressCallback) batchCallback).onDownloadProgress(70);
+
+        assertEquals(Collections.singletonList(40), first.progress);
+        assertEquals(Collections.singletonList(40), second.progress);
+        assertEquals(Collections.singletonList(70), first.downloadProgress);
+        assertEquals(Collections.singletonList(70), second.downloadProgress);
+    }
+
+    @Test public void failureOfBatchIsDeliveredToBatchedRequests() {
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        AsyncHttpClient.ResponseCallback callback = new AsyncHttpClient.ResponseCallback() {
+            @Override public void onResponse(Response response) {}
+
+            @Override public void onFailure(Throwable error) {
+                errors.add(error);
+            }
+        };
+        batcher.enqueue(get("http://host/1"), new RecordingCallback(true), callback);
+        batcher.enqueue(get("http://host/2"), new RecordingCallback(true), callback);
+
+        client.respond(500);
+
+        assertEquals(2, errors.size());
+    }
+
+    private void enqueue(Request request, HttpClient.RequestCallback requestCallback) {
+        batcher.enqueue(request, requestCallback, new AsyncHttpClient.ResponseCallback() {
+            @Override public void onResponse(Response response) {}
+
+            @Override public void onFailure(Throwable error) {}
+        });
+    }
+
+    private static Request get(String url) {
+        return new Request("GET", url, Collections.<Header>emptyList(), null);
+    }
+
+    private static Request post(String url, int length) {
+        return new Request("POST", url, Collections.<Header>emptyList(), new BytesArrayBody("text/plain", new byte[length]));
+    }
+
+    private static final class RecordingCallback implements HttpClient.DownloadProgressCallback, RequestBatcher.BatchableCallback {
+
+        private final boolean batchable;
+        private final List<Integer> progress = new ArrayList<Integer>();
+        private final List<Integer> downloadProgress = new ArrayList<Integer>();
+
+        private RecordingCallback(boolean batchable) {
+            this.batchable = batchable;
+        }
+
+        @Override public boolean isBatchable() {
+            return batchable;
+        }
+
+        @Override public void onProgress(int progress) {
+            this.progress.add(progress);
+        }
+
+        @Override public void onDownloadProgress(int progress) {
+            downloadProgress.add(progress);
+        }
+    }
+}
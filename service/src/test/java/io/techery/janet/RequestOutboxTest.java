@@ -0,0 +1,188 @@
+package io.techery.janet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.techery.janet.body.BytesArrayBody;
+import io.techery.janet.body.FileBody;
+import io.techery.janet.http.AsyncHttpClient;
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+import io.techery.janet.http.outbox.OutboxListener;
+import io.techery.janet.http.outbox.RequestJournal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RequestOutboxTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private RequestJournal journal;
+    private QueueClient client;
+    private List<String> events;
+    private RequestOutbox outbox;
+
+    @Before public void setUp() throws IOException {
+        journal = new RequestJournal(folder.newFolder(), 1024 * 1024);
+        client = new QueueClient();
+        events = new ArrayList<String>();
+        outbox = new RequestOutbox(journal, client, new OutboxListener() {
+            @Override public void onReplayed(Request request, Response response) {
+                events.add("replayed " + path(request) + " " + response.getStatus());
+            }
+
+            @Override public void onReplayStopped(Request request, Response response, Throwable error) {
+                events.add("stopped " + path(request) + " " + (response != null ? response.getStatus() : error.getMessage()));
+            }
+
+            @Override public void onDropped(Request request, Response response, Throwable error) {
+                events.add("dropped " + path(request) + " " + (response != null ? response.getStatus() : error.getClass().getSimpleName()));
+            }
+        });
+    }
+
+    @After public void tearDown() throws IOException {
+        journal.close();
+    }
+
+    @Test public void requestsAreReplayedOneByOneInOrder() {
+        outbox.offer(request("/1"));
+        outbox.offer(request("/2"));
+        outbox.offer(request("/3"));
+        outbox.replay();
+        // the next request is sent only after response of previous one
+        assertEquals(1, client.calls.size());
+        client.respond(201);
+        client.respond(400);
+        client.respond(201);
+
+        assertEquals(3, client.sent.size());
+        assertEquals("/1", path(client.sent.get(0)));
+        assertEquals("/2", path(client.sent.get(1)));
+        assertEquals("/3", path(client.sent.get(2)));
+        assertEquals("[replayed /1 201, replayed /2 400, replayed /3 201]", events.toString());
+        assertFalse(outbox.hasPending());
+    }
+
+    @Test public void replayStopsOnServerErrorAndResumesFromStoppedRequest() {
+        outbox.offer(request("/1"));
+        outbox.offer(request("/2"));
+        outbox.replay();
+        client.respond(503);
+
+        assertEquals("[stopped /1 503]", events.toString());
+        assertEquals(2, journal.count());
+        outbox.replay();
+        client.respond(200);
+        client.respond(200);
+
+        assertEquals("[stopped /1 503, replayed /1 200, replayed /2 200]", events.toString());
+        assertFalse(outbox.hasPending());
+    }
+
+    @Test public void replayStopsOnFailure() {
+        outbox.offer(request("/1"));
+        outbox.replay();
+        client.fail(new IOException("offline"));
+
+        assertEquals("[stopped /1 offline]", events.toString());
+        assertTrue(outbox.hasPending());
+    }
+
+    @Test public void replayIsNotStartedTwice() {
+        outbox.offer(request("/1"));
+        outbox.replay();
+        outbox.replay();
+
+        assertEquals(1, client.calls.size());
+    }
+
+    @Test public void requestsStoredDuringReplayAreReplayedAfterStoredBefore() {
+        outbox.offer(request("/1"));
+        outbox.replay();
+        outbox.offer(request("/2"));
+        client.respond(200);
+        client.respond(200);
+
+        assertEquals("[replayed /1 200, replayed /2 200]", events.toString());
+    }
+
+    @Test public void requestWithMissingFileIsDroppedAndReplayGoesOn() {
+        outbox.offer(new Request("POST", "http://host/file", Collections.<Header>emptyList(),
+                new FileBody("text/plain", new File(folder.getRoot(), "deleted"))));
+        outbox.offer(request("/2"));
+        outbox.replay();
+        client.respond(200);
+
+        assertEquals(1, client.sent.size());
+        assertEquals("[dropped /file FileNotFoundException, replayed /2 200]", events.toString());
+        assertFalse(outbox.hasPending());
+    }
+
+    @Test public void requestStoppedTooManyTimesIsDropped() {
+        outbox.offer(request("/1"));
+        outbox.offer(request("/2"));
+        for (int i = 1; i < RequestOutbox.MAX_REPLAY_ATTEMPTS; i++) {
+            outbox.replay();
+            client.respond(500);
+        }
+        assertEquals(2, journal.count());
+        outbox.replay();
+        client.respond(500);
+        client.respond(200);
+
+        assertEquals("dropped /1 500", events.get(events.size() - 2));
+        assertEquals("replayed /2 200", events.get(events.size() - 1));
+        assertFalse(outbox.hasPending());
+    }
+
+    private static String path(Request request) {
+        return request.getUrl().substring("http://host".length());
+    }
+
+    private static Request request(String path) {
+        return new Request("POST", "http://host" + path, Collections.<Header>emptyList(),
+                new BytesArrayBody("text/plain", path.getBytes()));
+    }
+
+    /**
+     * Client which answers requests in order they are sent, when test tells it to
+     */
+    private static final class QueueClient implements AsyncHttpClient {
+
+        final List<Request> sent = new ArrayList<Request>();
+        final List<ResponseCallback> calls = new ArrayList<ResponseCallback>();
+
+        @Override public void enqueue(Request request, RequestCallback requestCallback, ResponseCallback responseCallback) {
+            sent.add(request);
+            calls.add(responseCallback);
+        }
+
+        @Override public Response execute(Request request, RequestCallback requestCallback) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override public void cancel(Request request) {}
+
+        void respond(int status) {
+            Request request = sent.get(sent.size() - calls.size());
+            calls.remove(0).onResponse(new Response(request.getUrl(), status, "", Collections.<Header>emptyList(), null));
+        }
+
+        void fail(Throwable error) {
+            calls.remove(0).onFailure(error);
+        }
+    }
+}
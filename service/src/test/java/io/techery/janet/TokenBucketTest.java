@@ -0,0 +1,87 @@
+package io.techery.janet;
+
+import org.junit.Test;
+
+import io.techery.janet.http.ratelimit.RateLimitPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketTest {
+
+    @Test public void burstIsPermittedWithoutWaiting() {
+        TokenBucket bucket = new TokenBucket(new RateLimitPolicy(1, 3, 0));
+
+        assertEquals(0, bucket.acquire());
+        assertEquals(0, bucket.acquire());
+        assertEquals(0, bucket.acquire());
+        assertEquals(-1, bucket.acquire());
+    }
+
+    @Test public void requestsBeyondBurstWaitForInterval() {
+        TokenBucket bucket = new TokenBucket(new RateLimitPolicy(1, 2, 10000));
+        bucket.acquire();
+        bucket.acquire();
+
+        assertWait(1000, bucket.acquire());
+        assertWait(2000, bucket.acquire());
+        assertWait(3000, bucket.acquire());
+    }
+
+    @Test public void requestWhichMustWaitLongerThanMaxWaitIsRejected() {
+        TokenBucket bucket = new TokenBucket(new RateLimitPolicy(1, 1, 1500));
+        bucket.acquire();
+
+        assertWait(1000, bucket.acquire());
+        assertEquals(-1, bucket.acquire());
+        // rejected request doesn't take permit
+        assertEquals(-1, bucket.acquire());
+    }
+
+    @Test public void bucketIsRefilledWithTime() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(new RateLimitPolicy(20, 2, 0));
+        assertEquals(0, bucket.acquire());
+        assertEquals(0, bucket.acquire());
+        assertEquals(-1, bucket.acquire());
+        // one permit is refilled every 50 ms
+        Thread.sleep(120);
+
+        assertEquals(0, bucket.acquire());
+        assertEquals(0, bucket.acquire());
+        assertEquals(-1, bucket.acquire());
+    }
+
+    @Test public void idleTimeDoesNotAccumulateBeyondBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(new RateLimitPolicy(100, 2, 0));
+        Thread.sleep(100);
+
+        assertEquals(0, bucket.acquire());
+        assertEquals(0, bucket.acquire());
+        assertEquals(-1, bucket.acquire());
+    }
+
+    @Test public void pausedBucketDoesNotPermitRequests() {
+        TokenBucket bucket = new TokenBucket(new RateLimitPolicy(100, 5, 10000));
+        bucket.pause(2000);
+
+        assertWait(2000, bucket.acquire());
+    }
+
+    @Test public void pauseDoesNotShortenLongerWait() {
+        TokenBucket bucket = new TokenBucket(new RateLimitPolicy(1, 1, 10000));
+        bucket.acquire();
+        bucket.acquire();
+        bucket.acquire();
+        bucket.pause(500);
+
+        assertWait(3000, bucket.acquire());
+    }
+
+    /**
+     * Wait is measured from the moment bucket is created, so it could be a bit less than expected
+     */
+    private static void assertWait(long expectedMillis, long waitMillis) {
+        assertTrue("wait " + waitMillis + " ms, expected " + expectedMillis,
+                waitMillis <= expectedMillis && waitMillis > expectedMillis - 200);
+    }
+}
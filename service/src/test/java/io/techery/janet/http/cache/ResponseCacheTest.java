@@ -0,0 +1,174 @@
+package io.techery.janet.http.cache;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import io.techery.janet.body.BytesArrayBody;
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ResponseCacheTest {
+
+    private static final String URL = "http://host/path";
+
+    private final ResponseCache cache = new ResponseCache(100);
+
+    @Test public void responseWithMaxAgeIsFresh() throws IOException {
+        Response stored = cache.put(get(URL), response(200, "body", new Header("Cache-Control", "max-age=60")));
+
+        assertSame(stored, cache.get(get(URL)));
+        assertEquals(1, cache.hitCount());
+        assertEquals(4, cache.size());
+    }
+
+    @Test public void responseWithoutExplicitFreshnessIsNotStored() throws IOException {
+        cache.put(get(URL), response(200, "body"));
+
+        assertNull(cache.get(get(URL)));
+        assertEquals(1, cache.missCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test public void responseIsFreshUntilExpires() throws IOException {
+        long now = System.currentTimeMillis();
+        cache.put(get(URL), response(200, "body",
+                new Header("Date", httpDate(now)), new Header("Expires", httpDate(now + 60000))));
+        cache.put(get("http://host/expired"), response(200, "body",
+                new Header("Date", httpDate(now)), new Header("Expires", httpDate(now - 60000))));
+        cache.put(get("http://host/invalid"), response(200, "body", new Header("Expires", "0")));
+
+        assertNotNull(cache.get(get(URL)));
+        assertNull(cache.get(get("http://host/expired")));
+        assertNull(cache.get(get("http://host/invalid")));
+    }
+
+    @Test public void ageOfResponseIsCountedInFreshness() throws IOException {
+        cache.put(get(URL), response(200, "body", new Header("Cache-Control", "max-age=60"), new Header("Age", "60")));
+        cache.put(get("http://host/old"), response(200, "body",
+                new Header("Cache-Control", "max-age=60"), new Header("Date", httpDate(System.currentTimeMillis() - 120000))));
+
+        assertNull(cache.get(get(URL)));
+        assertNull(cache.get(get("http://host/old")));
+    }
+
+    @Test public void requestMaxAgeLimitsAcceptableAge() throws IOException {
+        cache.put(get(URL), response(200, "body", new Header("Cache-Control", "max-age=600"), new Header("Age", "30")));
+
+        assertNull(cache.get(get(URL, new Header("Cache-Control", "max-age=10"))));
+        assertNotNull(cache.get(get(URL, new Header("Cache-Control", "max-age=60"))));
+    }
+
+    @Test public void noStoreAndNoCacheAreHonoured() throws IOException {
+        cache.put(get(URL), response(200, "body", new Header("Cache-Control", "max-age=60, no-store")));
+        cache.put(get("http://host/no-cache"), response(200, "body", new Header("Cache-Control", "no-cache, max-age=60")));
+        cache.put(get("http://host/request", new Header("Cache-Control", "no-store")),
+                response(200, "body", new Header("Cache-Control", "max-age=60")));
+        cache.put(get("http://host/fresh"), response(200, "body", new Header("Cache-Control", "max-age=60")));
+
+        assertNull(cache.get(get(URL)));
+        assertNull(cache.get(get("http://host/no-cache")));
+        assertNull(cache.get(get("http://host/request")));
+        assertNull(cache.get(get("http://host/fresh", new Header("Cache-Control", "no-cache"))));
+        assertNotNull(cache.get(get("http://host/fresh")));
+    }
+
+    @Test public void uncacheableStatusIsNotStored() throws IOException {
+        cache.put(get(URL), response(500, "body", new Header("Cache-Control", "max-age=60")));
+
+        assertNull(cache.get(get(URL)));
+    }
+
+    @Test public void responseIsUsedForRequestsWithSameVaryHeaders() throws IOException {
+        cache.put(get(URL, new Header("Accept-Language", "en")),
+                response(200, "en", new Header("Cache-Control", "max-age=60"), new Header("Vary", "Accept-Language, Accept")));
+
+        assertNotNull(cache.get(get(URL, new Header("accept-language", "en"))));
+        assertNull(cache.get(get(URL, new Header("Accept-Language", "de"))));
+        assertNull(cache.get(get(URL)));
+        assertNull(cache.get(get(URL, new Header("Accept-Language", "en"), new Header("Accept", "text/plain"))));
+    }
+
+    @Test public void varyAllIsNotStored() throws IOException {
+        cache.put(get(URL), response(200, "body", new Header("Cache-Control", "max-age=60"), new Header("Vary", " * ")));
+
+        assertNull(cache.get(get(URL)));
+    }
+
+    @Test public void successfulUnsafeRequestInvalidatesStoredResponse() throws IOException {
+        cache.put(get(URL), response(200, "body", new Header("Cache-Control", "max-age=60")));
+        cache.put(request("POST", URL), response(500, "error"));
+        assertNotNull(cache.get(get(URL)));
+
+        cache.put(request("POST", URL), response(201, "created"));
+        assertNull(cache.get(get(URL)));
+        assertEquals(0, cache.size());
+    }
+
+    @Test public void leastRecentlyUsedResponsesAreEvicted() throws IOException {
+        Header maxAge = new Header("Cache-Control", "max-age=60");
+        cache.put(get("http://host/1"), response(200, new String(new char[40]), maxAge));
+        cache.put(get("http://host/2"), response(200, new String(new char[40]), maxAge));
+        cache.get(get("http://host/1"));
+        cache.put(get("http://host/3"), response(200, new String(new char[40]), maxAge));
+
+        assertNotNull(cache.get(get("http://host/1")));
+        assertNull(cache.get(get("http://host/2")));
+        assertNotNull(cache.get(get("http://host/3")));
+        assertEquals(1, cache.evictionCount());
+        assertEquals(80, cache.size());
+    }
+
+    @Test public void responseLargerThanCacheIsNotStored() throws IOException {
+        cache.put(get(URL), response(200, new String(new char[101]), new Header("Cache-Control", "max-age=60")));
+
+        assertNull(cache.get(get(URL)));
+        assertEquals(0, cache.size());
+    }
+
+    @Test public void replacedResponseIsNotCountedTwice() throws IOException {
+        cache.put(get(URL), response(200, "first", new Header("Cache-Control", "max-age=60")));
+        cache.put(get(URL), response(200, "second!", new Header("Cache-Control", "max-age=60")));
+
+        assertEquals(7, cache.size());
+        cache.evictAll();
+        assertEquals(0, cache.size());
+        assertNull(cache.get(get(URL)));
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void zeroSizeIsRejected() {
+        new ResponseCache(0);
+    }
+
+    static Request get(String url, Header... headers) {
+        return new Request("GET", url, Arrays.asList(headers), null);
+    }
+
+    static Request request(String method, String url) {
+        return new Request(method, url, new ArrayList<Header>(), new BytesArrayBody("text/plain", new byte[1]));
+    }
+
+    static Response response(int status, String body, Header... headers) {
+        List<Header> list = new ArrayList<Header>(Arrays.asList(headers));
+        return new Response(URL, status, "", list, new BytesArrayBody("text/plain", body.getBytes()));
+    }
+
+    static String httpDate(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(new Date(millis));
+    }
+}
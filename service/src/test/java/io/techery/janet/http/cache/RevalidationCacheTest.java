@@ -0,0 +1,134 @@
+package io.techery.janet.http.cache;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import io.techery.janet.body.BytesArrayBody;
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.Request;
+import io.techery.janet.http.model.Response;
+
+import static io.techery.janet.http.cache.ResponseCacheTest.get;
+import static io.techery.janet.http.cache.ResponseCacheTest.request;
+import static io.techery.janet.http.cache.ResponseCacheTest.response;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RevalidationCacheTest {
+
+    private static final String URL = "http://host/path";
+
+    private final RevalidationCache cache = new RevalidationCache(100);
+
+    @Test public void responseWithValidatorsIsStoredRegardlessOfFreshness() throws IOException {
+        Response stored = cache.put(get(URL), response(200, "body", new Header("ETag", "\"v1\""), new Header("Cache-Control", "max-age=0")), null);
+
+        assertSame(stored, cache.get(get(URL)));
+        assertEquals(4, cache.size());
+    }
+
+    @Test public void responseWithoutValidatorsIsNotStored() throws IOException {
+        cache.put(get(URL), response(200, "body"), null);
+
+        assertNull(cache.get(get(URL)));
+    }
+
+    @Test public void onlyOkNotNoStoreResponseIsStored() throws IOException {
+        cache.put(get(URL), response(203, "body", new Header("ETag", "\"v1\"")), null);
+        cache.put(get("http://host/no-store"), response(200, "body", new Header("ETag", "\"v1\""), new Header("Cache-Control", "no-store")), null);
+
+        assertNull(cache.get(get(URL)));
+        assertNull(cache.get(get("http://host/no-store")));
+    }
+
+    @Test public void conditionalRequestHasValidatorsOfStoredResponse() {
+        Response stored = response(200, "body", new Header("ETag", "\"v1\""), new Header("Last-Modified", "Tue, 15 Nov 1994 12:45:26 GMT"));
+        Request request = RevalidationCache.conditionalRequest(get(URL, new Header("Accept", "*/*")), stored);
+
+        assertEquals("\"v1\"", CacheControl.headerValue(request.getHeaders(), RevalidationCache.IF_NONE_MATCH));
+        assertEquals("Tue, 15 Nov 1994 12:45:26 GMT", CacheControl.headerValue(request.getHeaders(), RevalidationCache.IF_MODIFIED_SINCE));
+        assertEquals("*/*", CacheControl.headerValue(request.getHeaders(), "Accept"));
+    }
+
+    @Test public void requestWhichIsConditionalAlreadyIsNotRevalidated() throws IOException {
+        cache.put(get(URL), response(200, "body", new Header("ETag", "\"v1\"")), null);
+
+        assertNull(cache.get(get(URL, new Header(RevalidationCache.IF_NONE_MATCH, "\"v0\""))));
+        assertNull(cache.get(get(URL, new Header(RevalidationCache.IF_MODIFIED_SINCE, "Tue, 15 Nov 1994 12:45:26 GMT"))));
+        assertNull(cache.get(get(URL, new Header("Cache-Control", "no-store"))));
+        assertNotNull(cache.get(get(URL)));
+    }
+
+    @Test public void notModifiedIsReplacedWithStoredResponseWithUpdatedHeaders() throws IOException {
+        cache.put(get(URL), response(200, "body", new Header("ETag", "\"v1\""), new Header("Content-Type", "text/plain"),
+                new Header("X-Version", "1")), null);
+        Response stored = cache.get(get(URL));
+
+        Response notModified = new Response(URL, 304, "Not Modified", Arrays.asList(
+                new Header("x-version", "2"), new Header("Content-Length", "0")), new BytesArrayBody(null, new byte[0]));
+        Response response = cache.put(get(URL), notModified, stored);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals("body".getBytes(), ((BytesArrayBody) response.getBody()).getBytes());
+        assertEquals("2", CacheControl.headerValue(response.getHeaders(), "X-Version"));
+        assertEquals("text/plain", CacheControl.headerValue(response.getHeaders(), "Content-Type"));
+        assertNull(CacheControl.headerValue(response.getHeaders(), "Content-Length"));
+        assertEquals(1, cache.hitCount());
+        // updated headers are stored
+        assertEquals("2", CacheControl.headerValue(cache.get(get(URL)).getHeaders(), "X-Version"));
+    }
+
+    @Test public void changedResponseReplacesStoredOne() throws IOException {
+        cache.put(get(URL), response(200, "body", new Header("ETag", "\"v1\"")), null);
+        Response stored = cache.get(get(URL));
+
+        Response changed = cache.put(get(URL), response(200, "changed", new Header("ETag", "\"v2\"")), stored);
+
+        assertEquals(1, cache.missCount());
+        assertSame(changed, cache.get(get(URL)));
+        assertEquals(7, cache.size());
+    }
+
+    @Test public void changedResponseWithoutValidatorsRemovesStoredOne() throws IOException {
+        cache.put(get(URL), response(200, "body", new Header("ETag", "\"v1\"")), null);
+
+        cache.put(get(URL), response(200, "changed"), cache.get(get(URL)));
+
+        assertNull(cache.get(get(URL)));
+        assertEquals(0, cache.size());
+    }
+
+    @Test public void responseIsUsedForRequestsWithSameVaryHeaders() throws IOException {
+        cache.put(get(URL, new Header("Accept-Encoding", "gzip")),
+                response(200, "body", new Header("ETag", "\"v1\""), new Header("Vary", "Accept-Encoding")), null);
+        cache.put(get("http://host/all"), response(200, "body", new Header("ETag", "\"v1\""), new Header("Vary", "*")), null);
+
+        assertNotNull(cache.get(get(URL, new Header("Accept-Encoding", "gzip"))));
+        assertNull(cache.get(get(URL)));
+        assertNull(cache.get(get("http://host/all")));
+    }
+
+    @Test public void successfulUnsafeRequestRemovesStoredResponse() throws IOException {
+        cache.put(get(URL), response(200, "body", new Header("ETag", "\"v1\"")), null);
+
+        cache.put(request("DELETE", URL), response(204, ""), null);
+
+        assertNull(cache.get(get(URL)));
+    }
+
+    @Test public void leastRecentlyUsedResponsesAreEvicted() throws IOException {
+        Header etag = new Header("ETag", "\"v1\"");
+        cache.put(get("http://host/1"), response(200, new String(new char[60]), etag), null);
+        cache.put(get("http://host/2"), response(200, new String(new char[60]), etag), null);
+
+        assertNull(cache.get(get("http://host/1")));
+        assertNotNull(cache.get(get("http://host/2")));
+        assertEquals(1, cache.evictionCount());
+        assertEquals(60, cache.size());
+    }
+}
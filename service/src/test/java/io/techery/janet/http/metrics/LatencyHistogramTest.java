@@ -0,0 +1,120 @@
+package io.techery.janet.http.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test public void smallValuesHaveOwnBuckets() {
+        for (int micros = 0; micros < LatencyHistogram.SUB_BUCKET_COUNT; micros++) {
+            assertEquals(micros, LatencyHistogram.bucketIndex(micros));
+            assertEquals(micros, LatencyHistogram.bucketValue(micros));
+        }
+    }
+
+    @Test public void bucketWidthDoublesWithEveryPowerOfTwo() {
+        assertEquals(32, LatencyHistogram.bucketIndex(32));
+        assertEquals(63, LatencyHistogram.bucketIndex(63));
+        assertEquals(64, LatencyHistogram.bucketIndex(64));
+        assertEquals(64, LatencyHistogram.bucketIndex(65));
+        assertEquals(65, LatencyHistogram.bucketIndex(66));
+        assertEquals(96, LatencyHistogram.bucketIndex(128));
+        assertEquals(96, LatencyHistogram.bucketIndex(131));
+        assertEquals(97, LatencyHistogram.bucketIndex(132));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(LatencyHistogram.MAX_TRACKABLE_MICROS));
+    }
+
+    @Test public void bucketIndexIsMonotonicAndContiguous() {
+        int previous = 0;
+        for (long micros = 1; micros < 1 << 20; micros++) {
+            int index = LatencyHistogram.bucketIndex(micros);
+            assertTrue(index == previous || index == previous + 1);
+            previous = index;
+        }
+    }
+
+    @Test public void bucketValueIsWithinRelativeErrorOfRecordedValue() {
+        for (long micros = 1; micros <= LatencyHistogram.MAX_TRACKABLE_MICROS; micros = micros * 3 / 2 + 1) {
+            long value = LatencyHistogram.bucketValue(LatencyHistogram.bucketIndex(micros));
+            assertTrue(micros + " is bucketed as " + value, Math.abs(value - micros) <= micros / LatencyHistogram.SUB_BUCKET_COUNT + 1);
+        }
+    }
+
+    @Test public void emptySnapshotHasZeroValues() {
+        HistogramSnapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getP99Micros());
+        assertEquals(0, snapshot.getMaxMicros());
+        assertEquals(0, snapshot.getMeanMicros(), 0);
+    }
+
+    @Test public void percentilesOfUniformValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1000; millis >= 1; millis--) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1000000, snapshot.getMaxMicros());
+        assertEquals(500500, snapshot.getMeanMicros(), 0.001);
+        assertClose(500000, snapshot.getP50Micros());
+        assertClose(900000, snapshot.getP90Micros());
+        assertClose(990000, snapshot.getP99Micros());
+        assertClose(999000, snapshot.getP999Micros());
+        assertClose(1000, snapshot.getPercentileMicros(0));
+        // middle of the last bucket is over max
+        assertEquals(1000000, snapshot.getPercentileMicros(100));
+    }
+
+    @Test public void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(TimeUnit.DAYS.toNanos(30));
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, snapshot.getPercentileMicros(50));
+        assertEquals(LatencyHistogram.MAX_TRACKABLE_MICROS, snapshot.getMaxMicros());
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void percentileOutOfRangeIsRejected() {
+        new LatencyHistogram().snapshot().getPercentileMicros(100.5);
+    }
+
+    @Test public void valuesRecordedByConcurrentThreadsAreMerged() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 1; t <= 8; t++) {
+            final int micros = t * 100;
+            Thread thread = new Thread(new Runnable() {
+                @Override public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(80000, snapshot.getCount());
+        assertEquals(800, snapshot.getMaxMicros());
+        assertEquals(450, snapshot.getMeanMicros(), 0.001);
+    }
+
+    private static void assertClose(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual, Math.abs(actual - expected) <= expected * 0.03);
+    }
+}
@@ -0,0 +1,237 @@
+package io.techery.janet.http.outbox;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import io.techery.janet.body.BytesArrayBody;
+import io.techery.janet.body.FileBody;
+import io.techery.janet.http.model.Header;
+import io.techery.janet.http.model.Request;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RequestJournalTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private RequestJournal journal;
+
+    @Before public void setUp() throws IOException {
+        directory = folder.newFolder("outbox");
+        journal = new RequestJournal(directory, 1024 * 1024);
+    }
+
+    @After public void tearDown() throws IOException {
+        journal.close();
+    }
+
+    @Test public void requestsAreLoadedInOrderTheyAreAppended() throws IOException {
+        journal.append(request("/1", "one"));
+        journal.append(request("/2", "two"));
+        journal.append(request("/3", "three"));
+        reopen();
+
+        assertEquals(Arrays.asList("/1", "/2", "/3"), urls(journal));
+        Request request = journal.peek().getRequest();
+        assertEquals("POST", request.getMethod());
+        assertEquals("value", request.getHeaders().get(0).getValue());
+        assertNull(request.getHeaders().get(1).getValue());
+        assertEquals("text/plain", request.getBody().mimeType());
+        assertArrayEquals("one".getBytes(), ((BytesArrayBody) request.getBody()).getBytes());
+    }
+
+    @Test public void removedRequestIsNotLoaded() throws IOException {
+        long first = journal.append(request("/1", "one"));
+        journal.append(request("/2", "two"));
+        journal.remove(first);
+        reopen();
+
+        assertEquals(Collections.singletonList("/2"), urls(journal));
+        assertEquals(1, journal.count());
+    }
+
+    @Test public void idsAreNotReusedAfterReopen() throws IOException {
+        long first = journal.append(request("/1", "one"));
+        reopen();
+
+        assertTrue(journal.append(request("/2", "two")) > first);
+    }
+
+    @Test public void fileBodyIsStoredByPath() throws IOException {
+        File file = folder.newFile("upload.bin");
+        journal.append(new Request("PUT", "http://host/file", Collections.<Header>emptyList(), new FileBody("image/png", file)));
+        reopen();
+
+        FileBody body = (FileBody) journal.peek().getRequest().getBody();
+        assertEquals(file.getAbsolutePath(), body.getFile().getAbsolutePath());
+        assertEquals("image/png", body.mimeType());
+    }
+
+    @Test public void tornTailRecordIsTruncated() throws IOException {
+        journal.append(request("/1", "one"));
+        journal.append(request("/2", "two"));
+        long validSize = journal.size();
+        journal.close();
+        RandomAccessFile file = new RandomAccessFile(journalFile(), "rw");
+        try {
+            // length of record which is never written completely
+            file.seek(file.length());
+            file.writeInt(100);
+            file.write(new byte[]{1, 0, 0});
+        } finally {
+            file.close();
+        }
+        journal = new RequestJournal(directory, 1024 * 1024);
+
+        assertEquals(Arrays.asList("/1", "/2"), urls(journal));
+        assertEquals(validSize, journalFile().length());
+        journal.append(request("/3", "three"));
+        reopen();
+        assertEquals(Arrays.asList("/1", "/2", "/3"), urls(journal));
+    }
+
+    @Test public void corruptedTailRecordIsDropped() throws IOException {
+        journal.append(request("/1", "one"));
+        long validSize = journal.size();
+        journal.append(request("/2", "two"));
+        journal.close();
+        RandomAccessFile file = new RandomAccessFile(journalFile(), "rw");
+        try {
+            // flip byte of the last record body, so its checksum doesn't match
+            file.seek(file.length() - 6);
+            int value = file.read();
+            file.seek(file.length() - 6);
+            file.write(value ^ 0xff);
+        } finally {
+            file.close();
+        }
+        journal = new RequestJournal(directory, 1024 * 1024);
+
+        assertEquals(Collections.singletonList("/1"), urls(journal));
+        assertEquals(validSize, journalFile().length());
+    }
+
+    @Test public void requestWhichDoesNotFitIsRejected() throws IOException {
+        journal.close();
+        journal = new RequestJournal(directory, 256);
+
+        assertEquals(-1, journal.append(request("/big", new String(new char[512]))));
+        assertTrue(journal.isEmpty());
+        assertTrue(journal.append(request("/small", "small")) >= 0);
+    }
+
+    @Test public void compactionKeepsOnlyPendingRequests() throws IOException {
+        journal.append(request("/kept", "kept"));
+        for (int i = 0; i < 100; i++) {
+            journal.remove(journal.append(request("/removed", "removed")));
+        }
+        long size = journal.size();
+        journal.compact();
+
+        assertTrue(journal.size() < size);
+        assertEquals(Collections.singletonList("/kept"), urls(journal));
+        assertFalse(new File(directory, RequestJournal.JOURNAL_FILE_TEMP).exists());
+        journal.append(request("/next", "next"));
+        reopen();
+        assertEquals(Arrays.asList("/kept", "/next"), urls(journal));
+    }
+
+    @Test public void journalIsCompactedToStayWithinMaxSize() throws IOException {
+        journal.close();
+        journal = new RequestJournal(directory, 128 * 1024);
+        for (int i = 0; i < 5000; i++) {
+            journal.remove(journal.append(request("/" + i, "body " + i)));
+        }
+
+        assertTrue(journal.size() <= 128 * 1024);
+        assertTrue(journal.isEmpty());
+    }
+
+    @Test public void requestsAppendedWhileCompactingAreKept() throws Exception {
+        final int threads = 4;
+        final int perThread = 200;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> appenders = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            Thread appender = new Thread(new Runnable() {
+                @Override public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < perThread; i++) {
+                            long id = journal.append(request("/" + thread + "/" + i, "body"));
+                            // keep every other request
+                            if (i % 2 == 1) journal.remove(id);
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            });
+            appender.start();
+            appenders.add(appender);
+        }
+        start.countDown();
+        for (int i = 0; i < 20; i++) {
+            journal.compact();
+        }
+        for (Thread appender : appenders) {
+            appender.join();
+        }
+        assertTrue(errors.toString(), errors.isEmpty());
+        reopen();
+
+        assertEquals(threads * perThread / 2, journal.count());
+        for (int t = 0; t < threads; t++) {
+            List<String> urls = new ArrayList<String>();
+            for (String url : urls(journal)) {
+                if (url.startsWith("/" + t + "/")) urls.add(url);
+            }
+            List<String> expected = new ArrayList<String>();
+            for (int i = 0; i < perThread; i += 2) {
+                expected.add("/" + t + "/" + i);
+            }
+            assertEquals(expected, urls);
+        }
+    }
+
+    private void reopen() throws IOException {
+        journal.close();
+        journal = new RequestJournal(directory, 1024 * 1024);
+    }
+
+    private File journalFile() {
+        return new File(directory, RequestJournal.JOURNAL_FILE);
+    }
+
+    private static List<String> urls(RequestJournal journal) {
+        List<String> urls = new ArrayList<String>();
+        for (RequestJournal.Entry entry : journal.entries()) {
+            urls.add(entry.getRequest().getUrl().substring("http://host".length()));
+        }
+        return urls;
+    }
+
+    private static Request request(String path, String body) {
+        List<Header> headers = Arrays.asList(new Header("X-Header", "value"), new Header("X-Empty", null));
+        return new Request("POST", "http://host" + path, headers, new BytesArrayBody("text/plain", body.getBytes()));
+    }
+}
@@ -0,0 +1,98 @@
+package io.techery.janet.http.tracing;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TraceContextTest {
+
+    private static final String TRACEPARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    @Test public void validTraceparentIsParsed() {
+        TraceContext context = TraceContext.parse(TRACEPARENT, "vendor=value");
+
+        assertNotNull(context);
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", context.getTraceId());
+        assertEquals("00f067aa0ba902b7", context.getSpanId());
+        assertTrue(context.isSampled());
+        assertEquals("vendor=value", context.getTraceState());
+        assertEquals(TRACEPARENT, context.toTraceparent());
+    }
+
+    @Test public void unsampledFlagIsParsed() {
+        TraceContext context = TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00", null);
+
+        assertFalse(context.isSampled());
+        assertNull(context.getTraceState());
+    }
+
+    @Test public void onlySampledBitOfFlagsIsUsed() {
+        assertTrue(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-03", null).isSampled());
+        assertFalse(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-02", null).isSampled());
+    }
+
+    @Test public void missingOrTruncatedTraceparentIsIgnored() {
+        assertNull(TraceContext.parse(null, null));
+        assertNull(TraceContext.parse("", null));
+        assertNull(TraceContext.parse(TRACEPARENT.substring(0, TRACEPARENT.length() - 1), null));
+    }
+
+    @Test public void malformedTraceparentIsIgnored() {
+        // uppercase hex
+        assertNull(TraceContext.parse("00-4BF92F3577B34DA6A3CE929D0E0E4736-00f067aa0ba902b7-01", null));
+        // non hex chars
+        assertNull(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e473g-00f067aa0ba902b7-01", null));
+        assertNull(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-0x", null));
+        assertNull(TraceContext.parse("zz-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01", null));
+        // wrong delimiters
+        assertNull(TraceContext.parse("00_4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01", null));
+        assertNull(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736_00f067aa0ba902b7-01", null));
+        assertNull(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7_01", null));
+        // shifted fields
+        assertNull(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e473-600f067aa0ba902b7-01", null));
+    }
+
+    @Test public void zeroIdsAreInvalid() {
+        assertNull(TraceContext.parse("00-00000000000000000000000000000000-00f067aa0ba902b7-01", null));
+        assertNull(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01", null));
+    }
+
+    @Test public void forbiddenVersionIsIgnored() {
+        assertNull(TraceContext.parse("ff-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01", null));
+    }
+
+    @Test public void version00MustNotHaveExtraFields() {
+        assertNull(TraceContext.parse(TRACEPARENT + "-extra", null));
+        assertNull(TraceContext.parse(TRACEPARENT + "0", null));
+    }
+
+    @Test public void futureVersionCanHaveExtraFields() {
+        TraceContext context = TraceContext.parse("cc-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01-extra", null);
+
+        assertNotNull(context);
+        assertEquals("00f067aa0ba902b7", context.getSpanId());
+        // it's propagated with supported version
+        assertTrue(context.toTraceparent().startsWith("00-"));
+        assertNull(TraceContext.parse("cc-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01extra", null));
+    }
+
+    @Test public void childKeepsTraceAndSampling() {
+        TraceContext parent = TraceContext.parse(TRACEPARENT, "vendor=value");
+        TraceContext child = parent.child(42);
+
+        assertEquals(parent.getTraceId(), child.getTraceId());
+        assertEquals("000000000000002a", child.getSpanId());
+        assertTrue(child.isSampled());
+        assertEquals("vendor=value", child.getTraceState());
+        assertFalse(parent.equals(child));
+        assertEquals(child, TraceContext.parse(child.toTraceparent(), null));
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void zeroSpanIdIsRejected() {
+        new TraceContext(1, 1, 0, true, null);
+    }
+}
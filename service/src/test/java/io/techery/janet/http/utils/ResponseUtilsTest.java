@@ -0,0 +1,110 @@
+package io.techery.janet.http.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import io.techery.janet.body.ActionBody;
+import io.techery.janet.body.BytesArrayBody;
+import io.techery.janet.body.FileBody;
+import io.techery.janet.body.util.StreamUtil;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResponseUtilsTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test public void bodyReplacesDestinationFile() throws IOException {
+        File file = write(folder.newFile("file"), "old content");
+
+        File result = ResponseUtils.writeTo(new BytesArrayBody("text/plain", "new".getBytes()), file);
+
+        assertSame(file, result);
+        assertArrayEquals("new".getBytes(), ResponseUtils.readAll(new FileBody(null, file)));
+        assertEquals(1, folder.getRoot().listFiles().length);
+    }
+
+    @Test public void bodyIsWrittenToNewTemporaryFileWithoutDestination() throws IOException {
+        File result = ResponseUtils.writeTo(new BytesArrayBody("text/plain", "body".getBytes()), null);
+        try {
+            assertArrayEquals("body".getBytes(), ResponseUtils.readAll(new FileBody(null, result)));
+        } finally {
+            result.delete();
+        }
+    }
+
+    @Test public void fileBodyIsTransferredCompletely() throws IOException {
+        byte[] content = new byte[StreamUtil.NETWORK_CHUNK_SIZE * 40 + 3];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        FileOutputStream out = new FileOutputStream(folder.newFile("source"));
+        out.write(content);
+        out.close();
+        File file = new File(folder.getRoot(), "file");
+
+        ResponseUtils.writeTo(new FileBody(null, new File(folder.getRoot(), "source")), file);
+
+        assertArrayEquals(content, ResponseUtils.readAll(new FileBody(null, file)));
+    }
+
+    @Test public void missingBodyLeavesFileAsIs() throws IOException {
+        File file = write(folder.newFile("file"), "content");
+
+        assertSame(file, ResponseUtils.writeTo(null, file));
+        assertNull(ResponseUtils.writeTo(null, null));
+        assertArrayEquals("content".getBytes(), ResponseUtils.readAll(new FileBody(null, file)));
+        assertEquals(1, folder.getRoot().listFiles().length);
+    }
+
+    @Test public void failedDownloadKeepsDestinationAndDeletesTemporaryFile() throws IOException {
+        File file = write(folder.newFile("file"), "content");
+        final boolean[] closed = new boolean[1];
+        ActionBody body = new BytesArrayBody("text/plain", new byte[0]) {
+            @Override public InputStream getContent() {
+                return new ByteArrayInputStream(new byte[StreamUtil.NETWORK_CHUNK_SIZE * 2]) {
+                    @Override public synchronized int read(byte[] buffer, int offset, int length) {
+                        if (pos > 0) throw new IllegalStateException("connection reset");
+                        return super.read(buffer, offset, length);
+                    }
+
+                    @Override public void close() {
+                        closed[0] = true;
+                    }
+                };
+            }
+        };
+
+        try {
+            ResponseUtils.writeTo(body, file);
+            fail();
+        } catch (IllegalStateException expected) {}
+
+        assertTrue(closed[0]);
+        assertArrayEquals("content".getBytes(), ResponseUtils.readAll(new FileBody(null, file)));
+        assertEquals(1, folder.getRoot().listFiles().length);
+    }
+
+    private static File write(File file, String content) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes());
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}